@@ -0,0 +1,36 @@
+package nl.han.ica.icss.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the normal JMH command line options, but writes the results as JSON
+ * to jmh-result.json unless another result format or file is given. The JSON files of two runs
+ * can be compared to find regressions, for example with https://jmh.morethan.io
+ */
+public class BenchmarkMain
+{
+    private static final String RESULT_FILE = "jmh-result.json";
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException
+    {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+
+        if (!commandLine.getResultFormat().hasValue())
+        {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue())
+        {
+            options.result(RESULT_FILE);
+        }
+
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,56 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.parser.ASTListener;
+import nl.han.ica.icss.parser.ICSSLexer;
+import nl.han.ica.icss.parser.ICSSParser;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks Evaluator.apply. The evaluator rewrites the AST, so every invocation gets a fresh AST
+ * that is built outside of the measurement. The parse tree is kept, so that only costs a tree walk.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluatorBenchmark
+{
+    @Param({"level0", "level1", "level2", "level3", "level3x100", "level3x1000", "1MB"})
+    public String input;
+
+    private ParseTree parseTree;
+    private AST ast;
+
+    @Setup(Level.Trial)
+    public void parse()
+    {
+        ICSSParser parser = new ICSSParser(new CommonTokenStream(new ICSSLexer(CharStreams.fromString(Inputs.load(input)))));
+        parser.removeErrorListeners();
+        parseTree = parser.stylesheet();
+    }
+
+    @Setup(Level.Invocation)
+    public void buildAst()
+    {
+        ASTListener listener = new ASTListener();
+        new ParseTreeWalker().walk(listener, parseTree);
+        ast = listener.getAST();
+    }
+
+    @Benchmark
+    public AST evaluate()
+    {
+        new Evaluator().apply(ast);
+        return ast;
+    }
+}
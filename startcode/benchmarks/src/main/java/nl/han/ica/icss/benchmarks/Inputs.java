@@ -0,0 +1,59 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.workload.WorkloadGenerator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The inputs of the benchmarks. A name like level3 is one of the examples that ship with ICSSTool,
+ * level3x1000 is that example repeated 1000 times. A name like 10MB is a stylesheet of that size from
+ * the WorkloadGenerator, always with the same seed, to see how a stage scales with the input size.
+ */
+final class Inputs
+{
+    private static final long SEED = 20200901;
+    private static final String MEGABYTES = "MB";
+
+    private Inputs()
+    {
+    }
+
+    static String load(String name)
+    {
+        if (name.endsWith(MEGABYTES))
+        {
+            long size = Long.parseLong(name.substring(0, name.length() - MEGABYTES.length())) * 1024 * 1024;
+            return new WorkloadGenerator(SEED).generate(size);
+        }
+
+        int times = 1;
+        int separator = name.indexOf('x');
+        if (separator >= 0)
+        {
+            times = Integer.parseInt(name.substring(separator + 1));
+            name = name.substring(0, separator);
+        }
+
+        return resource(name + ".icss").repeat(times);
+    }
+
+    private static String resource(String resource)
+    {
+        try (InputStream stream = Inputs.class.getClassLoader().getResourceAsStream(resource))
+        {
+            if (stream == null)
+            {
+                throw new IllegalArgumentException("Unknown benchmark input " + resource);
+            }
+            // The examples do not always end with a newline, so repeating them must not glue two lines together
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8) + "\n";
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
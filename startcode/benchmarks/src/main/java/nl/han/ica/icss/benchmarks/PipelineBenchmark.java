@@ -0,0 +1,47 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.Pipeline;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the whole Pipeline from source text to CSS, the way the GUI and the batch compiler use it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark
+{
+    @Param({"level0", "level1", "level2", "level3", "level3x100", "level3x1000", "1MB"})
+    public String input;
+
+    private String source;
+
+    @Setup
+    public void setUp()
+    {
+        source = Inputs.load(input);
+    }
+
+    @Benchmark
+    public String endToEnd()
+    {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(source);
+        pipeline.check();
+        pipeline.transform();
+        return pipeline.generate();
+    }
+
+    @Benchmark
+    public String endToEndFused()
+    {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(source);
+        return pipeline.compile(false);
+    }
+}
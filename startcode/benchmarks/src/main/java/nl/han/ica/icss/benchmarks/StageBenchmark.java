@@ -0,0 +1,138 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.FlatAST;
+import nl.han.ica.icss.ast.Stylesheet;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.compiler.FlatCompiler;
+import nl.han.ica.icss.compiler.FusedCompiler;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.parser.ASTListener;
+import nl.han.ica.icss.parser.ASTVisitor;
+import nl.han.ica.icss.parser.ICSSLexer;
+import nl.han.ica.icss.parser.ICSSParser;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks every stage of the Pipeline on its own. The input of a stage is prepared once by the
+ * stages before it, so only the stage itself is measured.
+ *
+ * The Evaluator changes the AST it is applied to, see EvaluatorBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StageBenchmark
+{
+    @Param({"level0", "level1", "level2", "level3", "level3x100", "level3x1000", "1MB"})
+    public String input;
+
+    private String source;
+    private List<? extends Token> tokens;
+    private ParseTree parseTree;
+    private AST ast;
+    private AST transformedAst;
+    private FlatAST flatAst;
+
+    @Setup
+    public void setUp()
+    {
+        source = Inputs.load(input);
+        tokens = lex();
+        parseTree = parse();
+        ast = buildWithListener();
+
+        transformedAst = buildWithListener();
+        new Evaluator().apply(transformedAst);
+
+        flatAst = flatten();
+    }
+
+    @Benchmark
+    public List<? extends Token> lex()
+    {
+        return new ICSSLexer(CharStreams.fromString(source)).getAllTokens();
+    }
+
+    // Parses the tokens of setUp, so lexing is not measured again
+    @Benchmark
+    public ParseTree parse()
+    {
+        ICSSParser parser = new ICSSParser(new CommonTokenStream(new ListTokenSource(tokens)));
+        parser.removeErrorListeners();
+        return parser.stylesheet();
+    }
+
+    @Benchmark
+    public AST buildWithListener()
+    {
+        ASTListener listener = new ASTListener();
+        new ParseTreeWalker().walk(listener, parseTree);
+        return listener.getAST();
+    }
+
+    @Benchmark
+    public AST buildWithVisitor()
+    {
+        ASTVisitor visitor = new ASTVisitor();
+        return new AST((Stylesheet) visitor.visit(parseTree), visitor.getVariableNames());
+    }
+
+    // The checker only marks nodes with errors and the inputs have none, so the AST can be checked again
+    @Benchmark
+    public AST check()
+    {
+        new Checker().check(ast);
+        return ast;
+    }
+
+    @Benchmark
+    public String generate()
+    {
+        return new Generator().generate(transformedAst);
+    }
+
+    @Benchmark
+    public String generateMinified()
+    {
+        return new Generator(true).generate(transformedAst);
+    }
+
+    @Benchmark
+    public String generateParallel()
+    {
+        return new Generator(false, true).generate(transformedAst);
+    }
+
+    @Benchmark
+    public FlatAST flatten()
+    {
+        return FlatAST.fromAST(ast);
+    }
+
+    // Check, evaluate and generate in one pass, over the objects and over the flat arrays
+    @Benchmark
+    public String compileFused()
+    {
+        return new FusedCompiler().compile(ast);
+    }
+
+    @Benchmark
+    public String compileFlat()
+    {
+        return new FlatCompiler().compile(flatAst);
+    }
+}
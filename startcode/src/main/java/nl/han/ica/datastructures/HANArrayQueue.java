@@ -0,0 +1,125 @@
+package nl.han.ica.datastructures;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+
+/**
+ * Queue on a circular array, so enqueue, dequeue and peek are O(1). The array doubles when it is full.
+ * Iterating goes from the front to the back and fails fast when the queue is changed in the meantime.
+ */
+public class HANArrayQueue<T> implements IHANQueue<T>, Iterable<T> {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private Object[] values;
+    private int head;
+    private int size;
+
+    // Changed by every modification, so an iterator can detect them
+    private int modifications;
+
+    public HANArrayQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public HANArrayQueue(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity can not be negative");
+        }
+        this.values = new Object[Math.max(capacity, 1)];
+        this.head = 0;
+        this.size = 0;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            values[index(i)] = null;
+        }
+        head = 0;
+        size = 0;
+        modifications++;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void enqueue(T value) {
+        if (size == values.length) {
+            grow();
+        }
+        values[index(size)] = value;
+        size++;
+        modifications++;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T dequeue() {
+        if (isEmpty()) {
+            throw new IllegalStateException("Queue is empty");
+        }
+        T value = (T) values[head];
+        values[head] = null;
+        head = index(1);
+        size--;
+        modifications++;
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T peek() {
+        if (isEmpty()) {
+            throw new IllegalStateException("Queue is empty");
+        }
+        return (T) values[head];
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private final int expectedModifications = modifications;
+            private int position = 0;
+
+            @Override
+            public boolean hasNext() {
+                return position < size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (modifications != expectedModifications)
+                    throw new ConcurrentModificationException();
+                if (!hasNext())
+                    throw new IllegalStateException("No more elements");
+
+                return (T) values[index(position++)];
+            }
+        };
+    }
+
+    // The array position of the element at offset from the front
+    private int index(int offset) {
+        int index = head + offset;
+        return index < values.length ? index : index - values.length;
+    }
+
+    // Copies the elements to the start of an array twice as large, so they are no longer wrapped around
+    private void grow() {
+        Object[] grown = new Object[values.length * 2];
+        int firstPart = Math.min(size, values.length - head);
+        System.arraycopy(values, head, grown, 0, firstPart);
+        System.arraycopy(values, 0, grown, firstPart, size - firstPart);
+        values = grown;
+        head = 0;
+    }
+}
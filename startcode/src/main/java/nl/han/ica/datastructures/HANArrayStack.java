@@ -0,0 +1,59 @@
+package nl.han.ica.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * Stack on an array that doubles when it is full, so push and pop are amortized O(1) and no node is
+ * allocated per value. Popped slots are cleared, so the stack does not keep popped values alive.
+ * HANStack is the linked version.
+ */
+public class HANArrayStack<T> implements IHANStack<T> {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private Object[] values;
+    private int size;
+
+    public HANArrayStack() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public HANArrayStack(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity can not be negative");
+        }
+        this.values = new Object[Math.max(capacity, 1)];
+        this.size = 0;
+    }
+
+    @Override
+    public void push(T value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[size++] = value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T pop() {
+        if (isEmpty()) {
+            throw new IllegalStateException("Stack is empty");
+        }
+        T value = (T) values[--size];
+        values[size] = null;
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T peek() {
+        if (isEmpty()) {
+            throw new IllegalStateException("Stack is empty");
+        }
+        return (T) values[size - 1];
+    }
+
+    private boolean isEmpty() {
+        return size == 0;
+    }
+}
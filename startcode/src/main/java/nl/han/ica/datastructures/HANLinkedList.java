@@ -2,14 +2,31 @@ package nl.han.ica.datastructures;
 
 import java.util.Iterator;
 
+/**
+ * Linked list that keeps a reference to its first and last node, so adding at either end is O(1).
+ * A doubly linked list also keeps back-links, which makes removing the last value and iterating from the
+ * end O(1) per step as well, at the cost of one more reference per node.
+ */
 public class HANLinkedList<T> implements IHANLinkedList<T>
 {
+    private final boolean doublyLinked;
     private HANLinkedListNode<T> head;
+    private HANLinkedListNode<T> tail;
     private int size;
 
     public HANLinkedList()
     {
+        this(false);
+    }
+
+    /**
+     * @param doublyLinked keep back-links, see removeLast and descendingIterator
+     */
+    public HANLinkedList(boolean doublyLinked)
+    {
+        this.doublyLinked = doublyLinked;
         this.head = null;
+        this.tail = null;
         this.size = 0;
     }
 
@@ -18,14 +35,81 @@ public class HANLinkedList<T> implements IHANLinkedList<T>
     {
         HANLinkedListNode<T> newHANLinkedListNode = new HANLinkedListNode<>(value);
         newHANLinkedListNode.next = head;
+        if (head == null)
+        {
+            tail = newHANLinkedListNode;
+        }
+        else if (doublyLinked)
+        {
+            head.previous = newHANLinkedListNode;
+        }
         head = newHANLinkedListNode;
         size++;
     }
 
+    @Override
+    public void addLast(T value)
+    {
+        HANLinkedListNode<T> newHANLinkedListNode = new HANLinkedListNode<>(value);
+        link(newHANLinkedListNode, newHANLinkedListNode, 1);
+    }
+
+    @Override
+    public void addAll(Iterable<? extends T> values)
+    {
+        // Build the new nodes as a separate chain first, then link the whole chain to the tail at once
+        HANLinkedListNode<T> first = null;
+        HANLinkedListNode<T> last = null;
+        int count = 0;
+        for (T value : values)
+        {
+            HANLinkedListNode<T> newHANLinkedListNode = new HANLinkedListNode<>(value);
+            if (first == null)
+            {
+                first = newHANLinkedListNode;
+            }
+            else
+            {
+                last.next = newHANLinkedListNode;
+                if (doublyLinked)
+                {
+                    newHANLinkedListNode.previous = last;
+                }
+            }
+            last = newHANLinkedListNode;
+            count++;
+        }
+
+        if (first != null)
+        {
+            link(first, last, count);
+        }
+    }
+
+    // Links a chain of count nodes after the tail
+    private void link(HANLinkedListNode<T> first, HANLinkedListNode<T> last, int count)
+    {
+        if (tail == null)
+        {
+            head = first;
+        }
+        else
+        {
+            tail.next = first;
+            if (doublyLinked)
+            {
+                first.previous = tail;
+            }
+        }
+        tail = last;
+        size += count;
+    }
+
     @Override
     public void clear()
     {
         head = null;
+        tail = null;
         size = 0;
     }
 
@@ -40,15 +124,20 @@ public class HANLinkedList<T> implements IHANLinkedList<T>
         {
             addFirst(value);
         }
+        else if (index == size)
+        {
+            addLast(value);
+        }
         else
         {
             HANLinkedListNode<T> newHANLinkedListNode = new HANLinkedListNode<>(value);
-            HANLinkedListNode<T> current = head;
-            for (int i = 0; i < index - 1; i++)
+            HANLinkedListNode<T> current = node(index - 1);
+            newHANLinkedListNode.next = current.next;
+            if (doublyLinked)
             {
-                current = current.next;
+                newHANLinkedListNode.previous = current;
+                current.next.previous = newHANLinkedListNode;
             }
-            newHANLinkedListNode.next = current.next;
             current.next = newHANLinkedListNode;
             size++;
         }
@@ -65,14 +154,18 @@ public class HANLinkedList<T> implements IHANLinkedList<T>
         {
             removeFirst();
         }
+        else if (pos == size - 1)
+        {
+            removeLast();
+        }
         else
         {
-            HANLinkedListNode<T> current = head;
-            for (int i = 0; i < pos - 1; i++)
+            HANLinkedListNode<T> current = node(pos - 1);
+            current.next = current.next.next;
+            if (doublyLinked)
             {
-                current = current.next;
+                current.next.previous = current;
             }
-            current.next = current.next.next;
             size--;
         }
     }
@@ -84,12 +177,35 @@ public class HANLinkedList<T> implements IHANLinkedList<T>
         {
             throw new IndexOutOfBoundsException("Index is out of bounds");
         }
-        HANLinkedListNode<T> current = head;
-        for (int i = 0; i < pos; i++)
+        return node(pos).data;
+    }
+
+    // Walks to the node at pos, from the end when that is shorter and the list is doubly linked
+    private HANLinkedListNode<T> node(int pos)
+    {
+        if (pos == size - 1)
+        {
+            return tail;
+        }
+
+        HANLinkedListNode<T> current;
+        if (doublyLinked && pos > size / 2)
         {
-            current = current.next;
+            current = tail;
+            for (int i = size - 1; i > pos; i--)
+            {
+                current = current.previous;
+            }
         }
-        return current.data;
+        else
+        {
+            current = head;
+            for (int i = 0; i < pos; i++)
+            {
+                current = current.next;
+            }
+        }
+        return current;
     }
 
     @Override
@@ -98,6 +214,30 @@ public class HANLinkedList<T> implements IHANLinkedList<T>
         if (head != null)
         {
             head = head.next;
+            if (head == null)
+            {
+                tail = null;
+            }
+            else if (doublyLinked)
+            {
+                head.previous = null;
+            }
+            size--;
+        }
+    }
+
+    @Override
+    public void removeLast()
+    {
+        if (size <= 1)
+        {
+            removeFirst();
+        }
+        else
+        {
+            // Without back-links the node before the tail can only be found from the head
+            tail = doublyLinked ? tail.previous : node(size - 2);
+            tail.next = null;
             size--;
         }
     }
@@ -112,6 +252,16 @@ public class HANLinkedList<T> implements IHANLinkedList<T>
         return head.data;
     }
 
+    @Override
+    public T getLast()
+    {
+        if (tail == null)
+        {
+            throw new IllegalStateException("List is empty");
+        }
+        return tail.data;
+    }
+
     @Override
     public int getSize()
     {
@@ -121,6 +271,23 @@ public class HANLinkedList<T> implements IHANLinkedList<T>
     @Override
     public Iterator<T> iterator()
     {
-        return new HANLinkedListIterator<>(head);
+        return new HANLinkedListIterator<>(head, false);
+    }
+
+    @Override
+    public Iterator<T> descendingIterator()
+    {
+        if (doublyLinked)
+        {
+            return new HANLinkedListIterator<>(tail, true);
+        }
+
+        // Without back-links the values are reversed into a new list first, O(n) once
+        HANLinkedList<T> reversed = new HANLinkedList<>();
+        for (T value : this)
+        {
+            reversed.addFirst(value);
+        }
+        return reversed.iterator();
     }
-}
\ No newline at end of file
+}
@@ -5,9 +5,19 @@ import java.util.Iterator;
 
 public class HANLinkedListIterator<T> implements Iterator<T> {
     private HANLinkedListNode<T> current;
+    private final boolean descending;
 
     public HANLinkedListIterator(HANLinkedListNode<T> first) {
+        this(first, false);
+    }
+
+    /**
+     * @param first the node to start at
+     * @param descending follow the back-links instead of the next links, only for doubly linked nodes
+     */
+    public HANLinkedListIterator(HANLinkedListNode<T> first, boolean descending) {
         current = first;
+        this.descending = descending;
     }
 
     @Override
@@ -21,8 +31,8 @@ public class HANLinkedListIterator<T> implements Iterator<T> {
             throw new IllegalStateException("No more elements");
 
         HANLinkedListNode<T> node = current;
-        current = current.getNext();
+        current = descending ? current.getPrevious() : current.getNext();
         return node.getValue();
     }
 
-}
\ No newline at end of file
+}
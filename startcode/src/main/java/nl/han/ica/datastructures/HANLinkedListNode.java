@@ -3,16 +3,23 @@ package nl.han.ica.datastructures;
 public class HANLinkedListNode<T> {
     T data;
     HANLinkedListNode<T> next;
+    // Only set in a doubly linked list
+    HANLinkedListNode<T> previous;
 
     HANLinkedListNode(T data) {
         this.data = data;
         this.next = null;
+        this.previous = null;
     }
 
     public HANLinkedListNode<T> getNext() {
         return next;
     }
 
+    public HANLinkedListNode<T> getPrevious() {
+        return previous;
+    }
+
     public T getValue() {
         return data;
     }
@@ -19,7 +19,7 @@ public class HANQueue<T> implements IHANQueue<T> {
 
     @Override
     public void enqueue(T value) {
-        queueList.addFirst(value);
+        queueList.addLast(value);
     }
 
     @Override
@@ -27,9 +27,9 @@ public class HANQueue<T> implements IHANQueue<T> {
         if (isEmpty()) {
             throw new IllegalStateException("Queue is empty");
         }
-        // Since we're adding elements to the front of the list (index 0), we dequeue from the end of the list (index size - 1)
-        T value = queueList.get(queueList.getSize() - 1);
-        queueList.delete(queueList.getSize() - 1);
+        // Since we're adding elements to the end of the list, we dequeue from the front of the list
+        T value = queueList.getFirst();
+        queueList.removeFirst();
         return value;
     }
 
@@ -38,8 +38,8 @@ public class HANQueue<T> implements IHANQueue<T> {
         if (isEmpty()) {
             throw new IllegalStateException("Queue is empty");
         }
-        // Peek at the last element of the list (index size - 1)
-        return queueList.get(queueList.getSize() - 1);
+        // Peek at the first element of the list
+        return queueList.getFirst();
     }
 
     @Override
@@ -0,0 +1,107 @@
+package nl.han.ica.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * Scoped symbol table for names that are interned to small int ids (see VariableNames). The current value
+ * of every id is kept in one array, so a lookup is a single array access, no matter how many scopes are open.
+ * When a value is put, the value it hides is saved, and closing a scope restores everything saved since it
+ * was opened. Opening and closing a scope allocates nothing.
+ *
+ * A null value means the id is not defined in any open scope.
+ */
+public class HANSymbolTable<T> {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // The visible value per id
+    private Object[] values;
+
+    // The ids that were put and the values they hid, in order, to undo when a scope is closed
+    private int[] savedIds;
+    private Object[] savedValues;
+    private int saved;
+
+    // Per open scope, the number of saved values when it was opened
+    private int[] scopeStarts;
+    private int scopes;
+
+    public HANSymbolTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param ids the expected number of ids, the table grows when more are used
+     */
+    public HANSymbolTable(int ids) {
+        values = new Object[Math.max(ids, 1)];
+        savedIds = new int[DEFAULT_CAPACITY];
+        savedValues = new Object[DEFAULT_CAPACITY];
+        scopeStarts = new int[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Opens a new scope, values put from now on are removed again by closeScope
+     */
+    public void openScope() {
+        if (scopes == scopeStarts.length) {
+            scopeStarts = Arrays.copyOf(scopeStarts, scopes * 2);
+        }
+        scopeStarts[scopes++] = saved;
+    }
+
+    /**
+     * Closes the innermost scope, the values it hid are visible again
+     */
+    public void closeScope() {
+        if (scopes == 0) {
+            throw new IllegalStateException("No scope is open");
+        }
+        int start = scopeStarts[--scopes];
+        while (saved > start) {
+            saved--;
+            values[savedIds[saved]] = savedValues[saved];
+            savedValues[saved] = null;
+        }
+    }
+
+    /**
+     * Defines id in the innermost scope, or changes its value when it is already defined there
+     * @param id the interned name
+     * @param value the value, null hides the id as if it was not defined
+     */
+    public void put(int id, T value) {
+        if (scopes == 0) {
+            throw new IllegalStateException("No scope is open");
+        }
+        if (id >= values.length) {
+            values = Arrays.copyOf(values, Math.max(id + 1, values.length * 2));
+        }
+        if (saved == savedIds.length) {
+            savedIds = Arrays.copyOf(savedIds, saved * 2);
+            savedValues = Arrays.copyOf(savedValues, saved * 2);
+        }
+        savedIds[saved] = id;
+        savedValues[saved] = values[id];
+        saved++;
+        values[id] = value;
+    }
+
+    /**
+     * Returns the value of id in the innermost scope that defines it
+     * @param id the interned name
+     * @return the value, or null when id is not defined
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int id) {
+        return id >= 0 && id < values.length ? (T) values[id] : null;
+    }
+
+    /**
+     * Closes all scopes
+     */
+    public void clear() {
+        while (scopes > 0) {
+            closeScope();
+        }
+    }
+}
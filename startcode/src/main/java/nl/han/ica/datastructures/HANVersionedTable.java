@@ -0,0 +1,91 @@
+package nl.han.ica.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * Table from int ids (see VariableNames) to values that keeps every version. Every put gives a new version,
+ * and a lookup at an earlier version sees the table as it was then. A version is an immutable snapshot that
+ * costs nothing to take, instead of a copy of the table.
+ *
+ * Fill the table from one thread. Once it is complete, any number of threads can read it, as long as the
+ * table is handed to them safely (for example by starting them after filling it).
+ */
+public class HANVersionedTable<T> {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // Per id the versions that put a value, in increasing order, and those values
+    private int[][] versions;
+    private Object[][] values;
+    private int[] counts;
+
+    private int version;
+
+    public HANVersionedTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param ids the expected number of ids, the table grows when more are used
+     */
+    public HANVersionedTable(int ids) {
+        ids = Math.max(ids, 1);
+        versions = new int[ids][];
+        values = new Object[ids][];
+        counts = new int[ids];
+    }
+
+    /**
+     * Gives id a value from the next version on
+     * @param id the interned name
+     * @param value the value, null hides the id as if it was not defined
+     * @return the new version
+     */
+    public int put(int id, T value) {
+        if (id >= counts.length) {
+            int capacity = Math.max(id + 1, counts.length * 2);
+            versions = Arrays.copyOf(versions, capacity);
+            values = Arrays.copyOf(values, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        int count = counts[id];
+        if (count == 0) {
+            versions[id] = new int[2];
+            values[id] = new Object[2];
+        } else if (count == versions[id].length) {
+            versions[id] = Arrays.copyOf(versions[id], count * 2);
+            values[id] = Arrays.copyOf(values[id], count * 2);
+        }
+        versions[id][count] = ++version;
+        values[id][count] = value;
+        counts[id] = count + 1;
+        return version;
+    }
+
+    /**
+     * @return the current version, use it as a snapshot of the table as it is now
+     */
+    public int version() {
+        return version;
+    }
+
+    /**
+     * Returns the value of id in a snapshot
+     * @param id the interned name
+     * @param version the snapshot, see version()
+     * @return the value that was put last at or before version, or null when there is none
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int id, int version) {
+        if (id < 0 || id >= counts.length) {
+            return null;
+        }
+        // Most ids are put once or a few times, so search back from the last version
+        int[] idVersions = versions[id];
+        for (int i = counts[id] - 1; i >= 0; i--) {
+            if (idVersions[i] <= version) {
+                return (T) values[id][i];
+            }
+        }
+        return null;
+    }
+}
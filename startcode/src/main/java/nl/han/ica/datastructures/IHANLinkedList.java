@@ -10,6 +10,18 @@ public interface IHANLinkedList<T> extends Iterable<T>
      */
     void addFirst(T value);
 
+    /**
+     * Adds value to the end of the list in O(1) time
+     * @param value generic value to be added
+     */
+    void addLast(T value);
+
+    /**
+     * Adds all values to the end of the list, in their order. The new nodes are linked to the list in one step
+     * @param values the values to add
+     */
+    void addAll(Iterable<? extends T> values);
+
     /**
      * Clears list. Size equals 0 afterwards
      */
@@ -41,14 +53,31 @@ public interface IHANLinkedList<T> extends Iterable<T>
     void removeFirst();
 
     /**
-     * Returns first element in O(n) time
+     * Removes last element, in O(1) time when the list is doubly linked and O(n) otherwise
+     */
+    void removeLast();
+
+    /**
+     * Returns first element in O(1) time
      * @return first element
      */
     T getFirst();
 
+    /**
+     * Returns last element in O(1) time
+     * @return last element
+     */
+    T getLast();
+
     /**
      * Determines size of the list, equals the number of stored items but not the header node
      * @return number of items in list
      */
     int getSize();
+
+    /**
+     * Iterates from the last to the first element
+     * @return iterator in reverse order
+     */
+    Iterator<T> descendingIterator();
 }
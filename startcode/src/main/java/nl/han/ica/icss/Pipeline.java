@@ -1,36 +1,58 @@
 package nl.han.ica.icss;
 
 import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.Stylesheet;
+import nl.han.ica.icss.cache.CompileCache;
+import nl.han.ica.icss.cache.CompileResult;
 import nl.han.ica.icss.checker.Checker;
 import nl.han.ica.icss.checker.SemanticError;
+import nl.han.ica.icss.compiler.FusedCompiler;
 import nl.han.ica.icss.generator.Generator;
-import nl.han.ica.icss.parser.ASTListener;
-import nl.han.ica.icss.parser.ICSSLexer;
+import nl.han.ica.icss.parser.ASTVisitor;
 import nl.han.ica.icss.parser.ICSSParser;
+import nl.han.ica.icss.parser.ThreadLocalParser;
 import nl.han.ica.icss.transforms.Evaluator;
 import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.atn.ATNConfigSet;
+import org.antlr.v4.runtime.atn.PredictionMode;
 import org.antlr.v4.runtime.dfa.DFA;
 import org.antlr.v4.runtime.misc.ParseCancellationException;
-import org.antlr.v4.runtime.tree.ParseTree;
-import org.antlr.v4.runtime.tree.ParseTreeWalker;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.List;
 
 public class Pipeline implements ANTLRErrorListener {
 
+    private static final List<String> WARM_UP_EXAMPLES = List.of("level0.icss", "level1.icss", "level2.icss", "level3.icss");
+    private static final int WARM_UP_ROUNDS = 200;
+    private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+
     private AST ast;
     private boolean parsed = false;
     private boolean checked = false;
     private boolean transformed = false;
     private List<String> errors;
+    private int maxErrors = 0;
+    private boolean parallel = false;
 
     public Pipeline() {
         errors = new ArrayList<>();
     }
 
+    /**
+     * @return the parsed (or checked, or transformed) AST, null before parsing and after a cache hit of
+     * compileSource(byte[], boolean, boolean, CompileCache)
+     */
     public AST getAST() {
         return ast;
     }
@@ -47,30 +69,58 @@ public class Pipeline implements ANTLRErrorListener {
         return transformed;
     }
 
-    public void parseString(String input) {
+    /**
+     * Stops checking after a number of semantic errors, so badly broken input is rejected quickly
+     * @param maxErrors the maximum number of semantic errors to report, 0 (the default) for all
+     */
+    public void setMaxErrors(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
 
-        //Lex (with Antlr's generated lexer)
-        CharStream inputStream = CharStreams.fromString(input);
-        ICSSLexer lexer = new ICSSLexer(inputStream);
-        lexer.removeErrorListeners();
-        lexer.addErrorListener(this);
-        errors.clear();
-        try {
-            CommonTokenStream tokens = new CommonTokenStream(lexer);
+    /**
+     * Checks, transforms and generates the style rules of a stylesheet in parallel, see Checker, Evaluator
+     * and Generator.
+     * Worth it for stylesheets with thousands of rules.
+     * @param parallel true to use all cores
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
 
-            //Parse (with Antlr's generated parser)
-            ICSSParser parser = new ICSSParser(tokens);
-            parser.removeErrorListeners();
-            parser.addErrorListener(this);
+    public void parseString(String input) {
+        parse(CharStreams.fromString(input));
+    }
 
-            ParseTree parseTree = parser.stylesheet();
+    /**
+     * Parses a file without reading it into a String first, the bytes are decoded straight into the
+     * code point buffer of the lexer input.
+     * @param file the UTF-8 encoded ICSS file
+     */
+    public void parseFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            parse(CharStreams.fromChannel(channel, StandardCharsets.UTF_8, INPUT_BUFFER_SIZE,
+                    CodingErrorAction.REPLACE, file.toString(), channel.size()));
+        }
+    }
 
-            //Extract AST from the Antlr parse tree
-            ASTListener listener = new ASTListener();
-            ParseTreeWalker walker = new ParseTreeWalker();
-            walker.walk(listener, parseTree);
+    /**
+     * Parses everything that can be read from a channel, see parseFile(Path)
+     * @param channel the channel with UTF-8 encoded ICSS, it is not closed
+     */
+    public void parseChannel(ReadableByteChannel channel) throws IOException {
+        parse(CharStreams.fromChannel(channel, StandardCharsets.UTF_8, INPUT_BUFFER_SIZE,
+                CodingErrorAction.REPLACE, IntStream.UNKNOWN_SOURCE_NAME, -1));
+    }
 
-            this.ast = listener.getAST();
+    private void parse(CharStream input) {
+
+        //Lex and parse (with Antlr's generated lexer and parser, reused per thread)
+        ThreadLocalParser parsers = ThreadLocalParser.get();
+        errors.clear();
+        try {
+            //Build the AST while parsing
+            ICSSParser parser = parsers.reset(input, this);
+            this.ast = parseStylesheet(parser);
 
         } catch (RecognitionException e) {
             this.ast = new AST();
@@ -79,15 +129,41 @@ public class Pipeline implements ANTLRErrorListener {
         } catch (ParseCancellationException e) {
             this.ast = new AST();
             errors.add("Syntax error");
+        } finally {
+            parsers.release();
         }
         parsed = errors.isEmpty();
         checked = transformed = false;
     }
+    /*
+     Parse in two stages. The fast SLL prediction is enough for almost every valid input, it
+     bails out on the first syntax error instead of recovering. Only then the input is parsed
+     again with full LL prediction and the normal error reporting, so the errors stay the same.
+     The fast stage builds the AST one statement at a time, so the complete parse tree is never
+     kept in memory for valid input.
+     */
+    private AST parseStylesheet(ICSSParser parser) {
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+        try {
+            return new ASTVisitor().parseStatements(parser);
+        } catch (ParseCancellationException e) {
+            parser.reset();
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            parser.addErrorListener(this);
+            parser.setErrorHandler(new DefaultErrorStrategy());
+            //A new visitor, so the variable ids do not depend on where the fast stage stopped
+            ASTVisitor visitor = new ASTVisitor();
+            return new AST((Stylesheet) visitor.visit(parser.stylesheet()), visitor.getVariableNames());
+        }
+    }
+
     public boolean check() {
             if(ast == null)
                 return false;
 
-           (new Checker()).check(this.ast);
+           (new Checker(maxErrors, parallel)).check(this.ast);
 
             ArrayList<SemanticError> errors = this.ast.getErrors();
             if (!errors.isEmpty()) {
@@ -109,15 +185,156 @@ public class Pipeline implements ANTLRErrorListener {
         if(ast == null)
             return;
 
-        (new Evaluator()).apply(ast);
-
+        (new Evaluator(parallel)).apply(ast);
 
         transformed = errors.isEmpty();
     }
+
+    /**
+     * Seals the AST, so its children can no longer be added or removed and it can not be transformed
+     * anymore, see ASTNode.seal. For callers that keep the tree after transforming it.
+     * @return the sealed AST, or null when there is none
+     */
+    public AST getSealedAST() {
+        if (ast != null) {
+            ast.seal();
+        }
+        return ast;
+    }
     public String generate() {
-        Generator generator = new Generator();
+        return generate(false);
+    }
+    /**
+     * Generates the CSS
+     * @param minify leave out all optional whitespace, see Generator
+     * @return the generated CSS
+     */
+    public String generate(boolean minify) {
+        checkHasAST();
+        Generator generator = new Generator(minify, parallel);
         return generator.generate(ast);
     }
+    /**
+     * Generates the CSS straight to a channel, rule by rule, see Generator.generate(AST, WritableByteChannel)
+     * @param channel where the CSS is written to, it is not closed
+     * @param minify leave out all optional whitespace, see Generator
+     */
+    public void generate(WritableByteChannel channel, boolean minify) throws IOException {
+        checkHasAST();
+        Generator generator = new Generator(minify, parallel);
+        generator.generate(ast, channel);
+    }
+
+    private void checkHasAST() {
+        if (ast == null) {
+            throw new IllegalStateException("There is no AST to generate, parse first");
+        }
+    }
+
+    /**
+     * Checks, transforms and generates in a single walk over the AST, see FusedCompiler. Gives the
+     * same errors and CSS as check, transform and generate, but leaves the AST as it was parsed.
+     * @param minify leave out all optional whitespace, see Generator
+     * @return the generated CSS, or null when there are semantic errors
+     */
+    public String compile(boolean minify) {
+        if(ast == null)
+            return null;
+
+        FusedCompiler compiler = new FusedCompiler(minify, maxErrors);
+        String css = compiler.compile(ast);
+        for (SemanticError e : compiler.getErrors()) {
+            this.errors.add(e.toString());
+        }
+
+        checked = css != null;
+        transformed = false;
+        return css;
+    }
+
+    /**
+     * Parses and compiles a source in one go
+     * @param input the ICSS source
+     * @param minify leave out all optional whitespace, see Generator
+     * @param fused in a single walk (see compile(boolean)), or with check, transform and generate
+     * @return the CSS, or the syntax and semantic errors
+     */
+    public CompileResult compileSource(String input, boolean minify, boolean fused) {
+        parseString(input);
+        String css = null;
+        if (parsed && fused) {
+            css = compile(minify);
+        } else if (parsed && check()) {
+            transform();
+            css = generate(minify);
+        }
+        return new CompileResult(css, errors);
+    }
+
+    /**
+     * Like compileSource(String, boolean, boolean), but takes the result from a cache when the same source was
+     * compiled before with the same options. A hit parses nothing, afterwards there is no AST (check and
+     * transform do nothing, generate throws) and getErrors gives the cached errors. Compiling fused and in
+     * stages are meant to give the same result, but they do not share entries, so a difference can not leak
+     * from one into the other.
+     * @param input the UTF-8 encoded ICSS source, as it is read from the file
+     * @param minify leave out all optional whitespace, see Generator
+     * @param fused in a single walk or in separate stages, on a miss
+     * @param cache where the results are kept
+     * @return the CSS, or the syntax and semantic errors
+     */
+    public CompileResult compileSource(byte[] input, boolean minify, boolean fused, CompileCache cache) throws IOException {
+        String key = CompileCache.key(input, "minify=" + minify + ",maxErrors=" + maxErrors + ",fused=" + fused);
+        CompileResult result = cache.get(key);
+        if (result != null) {
+            ast = null;
+            errors.clear();
+            errors.addAll(result.getErrors());
+            parsed = checked = transformed = false;
+            return result;
+        }
+
+        result = compileSource(new String(input, StandardCharsets.UTF_8), minify, fused);
+        cache.put(key, result);
+        return result;
+    }
+
+    /**
+     * Compiles the example stylesheets that ship with ICSSTool, see warmUp(List, int)
+     */
+    public static void warmUp() {
+        List<String> corpus = new ArrayList<>();
+        for (String example : WARM_UP_EXAMPLES) {
+            try (InputStream stream = Pipeline.class.getClassLoader().getResourceAsStream(example)) {
+                if (stream != null) {
+                    corpus.add(new String(stream.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            } catch (IOException e) {
+                //A missing example only makes the warm-up less complete
+            }
+        }
+        warmUp(corpus, WARM_UP_ROUNDS);
+    }
+
+    /**
+     * Compiles a representative corpus a number of times. The DFA cache of the generated parser is
+     * shared by all threads, so afterwards the first real inputs no longer pay for filling it (and
+     * the JIT has seen every stage). Long running processes should call this once at startup.
+     * @param corpus the stylesheets to compile
+     * @param rounds how many times the corpus is compiled
+     */
+    public static void warmUp(List<String> corpus, int rounds) {
+        Pipeline pipeline = new Pipeline();
+        for (int i = 0; i < rounds; i++) {
+            for (String input : corpus) {
+                pipeline.parseString(input);
+                if (pipeline.isParsed() && pipeline.check()) {
+                    pipeline.transform();
+                    pipeline.generate();
+                }
+            }
+        }
+    }
 
     //Catch ANTLR errors
     @Override
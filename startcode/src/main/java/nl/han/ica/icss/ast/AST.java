@@ -10,26 +10,56 @@ public class AST {
 	//The root of the tree
 	public Stylesheet root;
 
+	//The ids of the variable names in this tree
+	public VariableNames variableNames;
+
+	//The errors the checker collected, null when the tree was not checked
+	private ArrayList<SemanticError> errors;
+
 	public AST() {
-		root = new Stylesheet();
+		this(new Stylesheet());
 	}
 	public AST(Stylesheet stylesheet) {
+		this(stylesheet, new VariableNames());
+	}
+	public AST(Stylesheet stylesheet, VariableNames variableNames) {
 		root = stylesheet;
+		this.variableNames = variableNames;
+	}
+	/*
+	 Seals the tree when it will not be changed anymore, see ASTNode.seal
+	 */
+	public void seal() {
+		root.seal();
+	}
+	public boolean isSealed() {
+		return root.isSealed();
 	}
 	public void setRoot(Stylesheet stylesheet) {
 		root = stylesheet;
+		errors = null;
 	}
+    /*
+     Returns the errors in the order of the nodes. After checking that is a copy of the errors the checker
+     collected, otherwise all nodes are visited to find the ones with an error.
+     */
     public ArrayList<SemanticError> getErrors() {
+        if(this.errors != null) {
+            return new ArrayList<>(this.errors);
+        }
 	    ArrayList<SemanticError> errors = new ArrayList<>();
         collectErrors(errors,root);
         return errors;
     }
+    public void setErrors(ArrayList<SemanticError> errors) {
+        this.errors = errors;
+    }
     private void collectErrors(ArrayList<SemanticError> errors, ASTNode node) {
 	    if(node.hasError()) {
 	        errors.add(node.getError());
         }
-        for(ASTNode child: node.getChildren()) {
-	        collectErrors(errors,child);
+        for(int i = 0; i < node.getChildCount(); i++) {
+	        collectErrors(errors,node.getChild(i));
         }
     }
 	@Override
@@ -3,12 +3,19 @@ package nl.han.ica.icss.ast;
 import nl.han.ica.icss.checker.SemanticError;
 
 import java.util.ArrayList;
-import java.util.List;
+import java.util.Objects;
 
 public class ASTNode {
 
     private SemanticError error = null;
 
+    //Where the node starts in the source, line and column count from 1. Both are 0 when the node was not parsed.
+    private int line = 0;
+    private int column = 0;
+
+    //See seal
+    private boolean sealed = false;
+
     /*
      This method is used in the GUI to create an appropriate label
      in the tree visualisation.
@@ -24,6 +31,18 @@ public class ASTNode {
     public ArrayList<ASTNode> getChildren() {
         return new ArrayList<>();
     }
+
+    /*
+     The number of children, and the child at an index, in the order of getChildren.
+     Unlike getChildren these do not copy the children into a new list, so tree walks use them.
+     */
+    public int getChildCount() {
+        return 0;
+    }
+    public ASTNode getChild(int index) {
+        throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for " + getChildCount() + " children");
+    }
+
     /*
     By implementing this method in a subclass you can easily create AST nodes
       incrementally.
@@ -43,13 +62,46 @@ public class ASTNode {
     }
 
     public void setError(String description) {
-        this.error = new SemanticError(description);
+        this.error = new SemanticError(description, this);
+    }
+
+    public void setError(SemanticError error) {
+        this.error = error;
     }
 
     public boolean hasError() {
         return error != null;
     }
 
+    public void setPosition(int line, int column) {
+        this.line = line;
+        this.column = column;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    /*
+     Where the child at an index starts in the source. A shared literal has no position of its own (see Literal),
+     so the nodes that report errors about a literal child keep the position of that use, see setChildPosition.
+     */
+    public int getChildLine(int index) {
+        return getChild(index).getLine();
+    }
+    public int getChildColumn(int index) {
+        return getChild(index).getColumn();
+    }
+    /*
+     The parsers give the position of a literal child to its parent. By default it is not kept.
+     */
+    public void setChildPosition(int index, int line, int column) {
+    }
+
 	@Override
 	public String toString() {
 		StringBuilder result = new StringBuilder();
@@ -60,26 +112,64 @@ public class ASTNode {
 		builder.append("[");
 		builder.append(getNodeLabel());	
 		builder.append("|");
-		for(ASTNode child : getChildren()) {
-			child.toString(builder);
-		}	
+		for(int i = 0; i < getChildCount(); i++) {
+			getChild(i).toString(builder);
+		}
 		builder.append("]");
 	}
 
+	/*
+	 Seals this subtree against changes to its children: addChild and removeChild throw on a sealed node,
+	 and the Evaluator does not transform a sealed tree. The fields of the nodes are public and are not
+	 guarded, so equals and hashCode always walk the subtree.
+	 */
+	public void seal() {
+		if (sealed)
+			return;
+		for (int i = 0; i < getChildCount(); i++) {
+			ASTNode child = getChild(i);
+			if (child != null)
+				child.seal();
+		}
+		sealed = true;
+	}
+	public boolean isSealed() {
+		return sealed;
+	}
+	protected void checkNotSealed() {
+		if (sealed)
+			throw new IllegalStateException(getNodeLabel() + " is sealed and can not be changed");
+	}
+
 	@Override
     public boolean equals(Object o) {
-        if(! (o instanceof ASTNode))
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
             return false;
+        ASTNode other = (ASTNode) o;
         //Compare all children
-        List<ASTNode> thisChildren = this.getChildren();
-        List<ASTNode> otherChildren = ((ASTNode) o).getChildren();
-        if(otherChildren.size() != thisChildren.size())
+        int childCount = this.getChildCount();
+        if(other.getChildCount() != childCount)
             return false;
-        for(int i = 0; i < thisChildren.size(); i++ ) {
-            if(!thisChildren.get(i).equals(otherChildren.get(i))) {
+        for(int i = 0; i < childCount; i++ ) {
+            if(!Objects.equals(this.getChild(i), other.getChild(i))) {
                 return false;
             }
         }
         return true;
     }
+
+    /*
+     The hash of the kind of node and of all children. Nodes with a value of their own, like literals, add it
+     in their own hashCode.
+     */
+    @Override
+    public int hashCode() {
+        int result = getClass().getName().hashCode();
+        for(int i = 0; i < getChildCount(); i++) {
+            result = 31 * result + Objects.hashCode(getChild(i));
+        }
+        return result;
+    }
 }
@@ -1,7 +1,6 @@
 package nl.han.ica.icss.ast;
 
 import java.util.ArrayList;
-import java.util.Objects;
 
 /*
  * A Declaration defines a style property. Declarations are things like "width: 100px"
@@ -32,8 +31,23 @@ public class Declaration extends ASTNode {
 		    children.add(expression);
 		return children;
 	}
+
+	@Override
+	public int getChildCount() {
+		return (property != null ? 1 : 0) + (expression != null ? 1 : 0);
+	}
+	@Override
+	public ASTNode getChild(int index) {
+		if (index == 0 && property != null)
+			return property;
+		if (index == (property != null ? 1 : 0) && expression != null)
+			return expression;
+		return super.getChild(index);
+	}
+
 	@Override
 	public ASTNode addChild(ASTNode child) {
+		checkNotSealed();
 		if(child instanceof PropertyName) {
 			property = (PropertyName) child;
 		} else if(child instanceof Expression) {
@@ -41,18 +55,4 @@ public class Declaration extends ASTNode {
 		}
 		return this;
 	}
-
-	@Override
-	public boolean equals(Object o) {
-		if (this == o) return true;
-		if (o == null || getClass() != o.getClass()) return false;
-		if (!super.equals(o)) return false;
-		Declaration that = (Declaration) o;
-		return Objects.equals(property, that.property) &&
-				Objects.equals(expression, that.expression);
-	}
-	@Override
-	public int hashCode() {
-		return Objects.hash(property, expression);
-	}
 }
@@ -1,7 +1,6 @@
 package nl.han.ica.icss.ast;
 
 import java.util.ArrayList;
-import java.util.Objects;
 
 public class ElseClause extends ASTNode{
 
@@ -27,26 +26,21 @@ public class ElseClause extends ASTNode{
     }
 
     @Override
-    public ASTNode addChild(ASTNode child) {
-
-        body.add(child);
-
-        return this;
-    }
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        if (!super.equals(o)) return false;
-        ElseClause ElseClause = (ElseClause) o;
-        return Objects.equals(body, ElseClause.body);
+    public int getChildCount() {
+        return body.size();
     }
 
     @Override
-    public int hashCode() {
-        return Objects.hash(body);
+    public ASTNode getChild(int index) {
+        return body.get(index);
     }
 
+    @Override
+    public ASTNode addChild(ASTNode child) {
+        checkNotSealed();
 
+        body.add(child);
 
+        return this;
+    }
 }
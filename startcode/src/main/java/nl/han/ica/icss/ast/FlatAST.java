@@ -0,0 +1,330 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.ast.selectors.IdSelector;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/*
+ A compact encoding of an AST for very large stylesheets. A node is an index into parallel int arrays
+ instead of an object: its kind, its parent, its first child, its next sibling and its value. Nodes are
+ stored in document order (a node before its children), node 0 is the stylesheet.
+
+ The value of a node depends on its kind:
+ - pixel, percentage and scalar literals: the number
+ - bool literals: 1 for TRUE, 0 for FALSE
+ - color literals, selectors and variable references: the index of the text in the string table
+ - declarations: the index of the property name, there is no node for the property name
+ - variable assignments: the index of the variable name, the only child is the expression
+ - all other nodes: 0
+
+ The children of a node are in the order of ASTNode.getChildren. Every text is in the string table once,
+ so the index of a variable name can be used as its id in a HANSymbolTable.
+
+ The line and column of a node are where it is in the source. For a shared literal that is where this use
+ of it starts, see ASTNode.getChildLine.
+ */
+public class FlatAST {
+
+	public static final int NONE = -1;
+
+	public static final int STYLESHEET = 0;
+	public static final int STYLERULE = 1;
+	public static final int TAG_SELECTOR = 2;
+	public static final int CLASS_SELECTOR = 3;
+	public static final int ID_SELECTOR = 4;
+	public static final int DECLARATION = 5;
+	public static final int VARIABLE_ASSIGNMENT = 6;
+	public static final int VARIABLE_REFERENCE = 7;
+	public static final int IF_CLAUSE = 8;
+	public static final int ELSE_CLAUSE = 9;
+	public static final int ADD_OPERATION = 10;
+	public static final int SUBTRACT_OPERATION = 11;
+	public static final int MULTIPLY_OPERATION = 12;
+	public static final int COLOR_LITERAL = 13;
+	public static final int PIXEL_LITERAL = 14;
+	public static final int PERCENTAGE_LITERAL = 15;
+	public static final int SCALAR_LITERAL = 16;
+	public static final int BOOL_LITERAL = 17;
+
+	private static final int DEFAULT_CAPACITY = 64;
+
+	private int[] kind;
+	private int[] parent;
+	private int[] firstChild;
+	private int[] nextSibling;
+	private int[] value;
+	private int[] line;
+	private int[] column;
+	private int size;
+
+	private String[] strings;
+	private int stringCount;
+	//Only needed while texts are added, trim drops it
+	private HashMap<String, Integer> stringIds = new HashMap<>();
+
+	public FlatAST() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/*
+	 Creates an empty tree with room for a number of nodes, the arrays grow when more are added.
+	 */
+	public FlatAST(int capacity) {
+		capacity = Math.max(capacity, 1);
+		kind = new int[capacity];
+		parent = new int[capacity];
+		firstChild = new int[capacity];
+		nextSibling = new int[capacity];
+		value = new int[capacity];
+		line = new int[capacity];
+		column = new int[capacity];
+		strings = new String[DEFAULT_CAPACITY];
+	}
+
+	/*
+	 Encodes an AST, see toAST for the way back.
+	 */
+	public static FlatAST fromAST(AST ast) {
+		FlatAST flat = new FlatAST();
+		flat.add(ast.root, NONE, NONE, ast.root.getLine(), ast.root.getColumn());
+		flat.trim();
+		return flat;
+	}
+
+	/*
+	 Decodes the tree into AST nodes. Variable names are interned in the VariableNames of the new AST.
+	 */
+	public AST toAST() {
+		AST ast = new AST();
+		if (size > 0) {
+			ast.root = (Stylesheet) toNode(0, ast.variableNames);
+		}
+		return ast;
+	}
+
+	public int size() {
+		return size;
+	}
+	public int getKind(int node) {
+		return kind[node];
+	}
+	public int getParent(int node) {
+		return parent[node];
+	}
+	public int getFirstChild(int node) {
+		return firstChild[node];
+	}
+	public int getNextSibling(int node) {
+		return nextSibling[node];
+	}
+	public int getValue(int node) {
+		return value[node];
+	}
+	public int getLine(int node) {
+		return line[node];
+	}
+	public int getColumn(int node) {
+		return column[node];
+	}
+	public void setPosition(int node, int line, int column) {
+		this.line[node] = line;
+		this.column[node] = column;
+	}
+	/*
+	 The text of a color literal, selector, variable or property, see the value of the node.
+	 */
+	public String getString(int node) {
+		return strings[value[node]];
+	}
+	public String getStringAt(int index) {
+		return strings[index];
+	}
+	public int getStringCount() {
+		return stringCount;
+	}
+
+	/*
+	 Returns the index of a text in the string table, it is added when it is not there yet.
+	 */
+	public int intern(String text) {
+		if (stringIds == null) {
+			//Dropped by trim, texts are added after all
+			stringIds = new HashMap<>();
+			for (int i = 0; i < stringCount; i++) {
+				stringIds.put(strings[i], i);
+			}
+		}
+		Integer id = stringIds.get(text);
+		if (id == null) {
+			if (stringCount == strings.length) {
+				strings = Arrays.copyOf(strings, stringCount * 2);
+			}
+			id = stringCount;
+			strings[stringCount++] = text;
+			stringIds.put(text, id);
+		}
+		return id;
+	}
+
+	/*
+	 Adds a node as the last child of parent (NONE for the root). previous is the current last child of
+	 parent, or NONE, so adding a child does not walk its siblings. Returns the new node.
+	 */
+	public int addNode(int nodeKind, int nodeValue, int parentNode, int previous) {
+		if (size == kind.length) {
+			int capacity = Math.max(size * 2, DEFAULT_CAPACITY);
+			kind = Arrays.copyOf(kind, capacity);
+			parent = Arrays.copyOf(parent, capacity);
+			firstChild = Arrays.copyOf(firstChild, capacity);
+			nextSibling = Arrays.copyOf(nextSibling, capacity);
+			value = Arrays.copyOf(value, capacity);
+			line = Arrays.copyOf(line, capacity);
+			column = Arrays.copyOf(column, capacity);
+		}
+		int node = size++;
+		kind[node] = nodeKind;
+		value[node] = nodeValue;
+		parent[node] = parentNode;
+		firstChild[node] = NONE;
+		nextSibling[node] = NONE;
+		line[node] = 0;
+		column[node] = 0;
+		if (previous != NONE) {
+			nextSibling[previous] = node;
+		} else if (parentNode != NONE) {
+			firstChild[parentNode] = node;
+		}
+		return node;
+	}
+
+	/*
+	 Shrinks the arrays to the number of nodes and drops the map of texts to their index, when no more
+	 nodes will be added.
+	 */
+	public void trim() {
+		kind = Arrays.copyOf(kind, size);
+		parent = Arrays.copyOf(parent, size);
+		firstChild = Arrays.copyOf(firstChild, size);
+		nextSibling = Arrays.copyOf(nextSibling, size);
+		value = Arrays.copyOf(value, size);
+		line = Arrays.copyOf(line, size);
+		column = Arrays.copyOf(column, size);
+		strings = Arrays.copyOf(strings, Math.max(stringCount, 1));
+		stringIds = null;
+	}
+
+	/*
+	 The position is passed by the parent, a shared literal has no position of its own.
+	 */
+	private int add(ASTNode node, int parentNode, int previous, int nodeLine, int nodeColumn) {
+		int index;
+		if (node instanceof Declaration) {
+			//The property name is the value of the declaration
+			Declaration declaration = (Declaration) node;
+			index = addNode(DECLARATION, intern(declaration.property.name), parentNode, previous);
+			setPosition(index, nodeLine, nodeColumn);
+			if (declaration.expression != null) {
+				add(declaration.expression, index, NONE, declaration.expression.getLine(), declaration.expression.getColumn());
+			}
+			return index;
+		}
+		if (node instanceof VariableAssignment) {
+			//The name is the value of the assignment
+			VariableAssignment assignment = (VariableAssignment) node;
+			index = addNode(VARIABLE_ASSIGNMENT, intern(assignment.name.name), parentNode, previous);
+			setPosition(index, nodeLine, nodeColumn);
+			if (assignment.expression != null) {
+				add(assignment.expression, index, NONE, assignment.expression.getLine(), assignment.expression.getColumn());
+			}
+			return index;
+		}
+
+		index = addNode(kindOf(node), valueOf(node), parentNode, previous);
+		setPosition(index, nodeLine, nodeColumn);
+		int child = NONE;
+		for (int i = 0; i < node.getChildCount(); i++) {
+			child = add(node.getChild(i), index, child, node.getChildLine(i), node.getChildColumn(i));
+		}
+		return index;
+	}
+
+	private static int kindOf(ASTNode node) {
+		if (node instanceof Stylesheet) return STYLESHEET;
+		if (node instanceof Stylerule) return STYLERULE;
+		if (node instanceof TagSelector) return TAG_SELECTOR;
+		if (node instanceof ClassSelector) return CLASS_SELECTOR;
+		if (node instanceof IdSelector) return ID_SELECTOR;
+		if (node instanceof VariableReference) return VARIABLE_REFERENCE;
+		if (node instanceof IfClause) return IF_CLAUSE;
+		if (node instanceof ElseClause) return ELSE_CLAUSE;
+		if (node instanceof AddOperation) return ADD_OPERATION;
+		if (node instanceof SubtractOperation) return SUBTRACT_OPERATION;
+		if (node instanceof MultiplyOperation) return MULTIPLY_OPERATION;
+		if (node instanceof ColorLiteral) return COLOR_LITERAL;
+		if (node instanceof PixelLiteral) return PIXEL_LITERAL;
+		if (node instanceof PercentageLiteral) return PERCENTAGE_LITERAL;
+		if (node instanceof ScalarLiteral) return SCALAR_LITERAL;
+		if (node instanceof BoolLiteral) return BOOL_LITERAL;
+		throw new IllegalArgumentException("Node of type " + node.getClass().getSimpleName() + " can not be flattened");
+	}
+
+	private int valueOf(ASTNode node) {
+		if (node instanceof TagSelector) return intern(((TagSelector) node).tag);
+		if (node instanceof ClassSelector) return intern(((ClassSelector) node).cls);
+		if (node instanceof IdSelector) return intern(((IdSelector) node).id);
+		if (node instanceof VariableReference) return intern(((VariableReference) node).name);
+		if (node instanceof ColorLiteral) return intern(((ColorLiteral) node).value);
+		if (node instanceof PixelLiteral) return ((PixelLiteral) node).value;
+		if (node instanceof PercentageLiteral) return ((PercentageLiteral) node).value;
+		if (node instanceof ScalarLiteral) return ((ScalarLiteral) node).value;
+		if (node instanceof BoolLiteral) return ((BoolLiteral) node).value ? 1 : 0;
+		return 0;
+	}
+
+	private ASTNode toNode(int node, VariableNames variableNames) {
+		ASTNode result;
+		switch (kind[node]) {
+			case STYLESHEET: result = new Stylesheet(); break;
+			case STYLERULE: result = new Stylerule(); break;
+			case TAG_SELECTOR: result = new TagSelector(getString(node)); break;
+			case CLASS_SELECTOR: result = new ClassSelector(getString(node)); break;
+			case ID_SELECTOR: result = new IdSelector(getString(node)); break;
+			case DECLARATION: result = new Declaration(getString(node)); break;
+			case VARIABLE_ASSIGNMENT:
+				result = new VariableAssignment();
+				result.addChild(new VariableReference(getString(node), variableNames.intern(getString(node))));
+				break;
+			case VARIABLE_REFERENCE: result = new VariableReference(getString(node), variableNames.intern(getString(node))); break;
+			case IF_CLAUSE: result = new IfClause(); break;
+			case ELSE_CLAUSE: result = new ElseClause(); break;
+			case ADD_OPERATION: result = new AddOperation(); break;
+			case SUBTRACT_OPERATION: result = new SubtractOperation(); break;
+			case MULTIPLY_OPERATION: result = new MultiplyOperation(); break;
+			case COLOR_LITERAL: result = ColorLiteral.valueOf(getString(node)); break;
+			case PIXEL_LITERAL: result = PixelLiteral.valueOf(value[node]); break;
+			case PERCENTAGE_LITERAL: result = PercentageLiteral.valueOf(value[node]); break;
+			case SCALAR_LITERAL: result = ScalarLiteral.valueOf(value[node]); break;
+			case BOOL_LITERAL: result = BoolLiteral.valueOf(value[node] != 0); break;
+			default: throw new IllegalStateException("Unknown node kind " + kind[node]);
+		}
+		//The literals are shared, their parent keeps their position
+		if (!(result instanceof Literal)) {
+			result.setPosition(line[node], column[node]);
+		}
+		for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+			ASTNode childNode = toNode(child, variableNames);
+			result.addChild(childNode);
+			if (childNode instanceof Literal) {
+				result.setChildPosition(result.getChildCount() - 1, line[child], column[child]);
+			}
+		}
+		return result;
+	}
+}
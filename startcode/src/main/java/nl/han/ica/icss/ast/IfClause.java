@@ -1,7 +1,6 @@
 package nl.han.ica.icss.ast;
 
 import java.util.ArrayList;
-import java.util.Objects;
 
 public class IfClause extends ASTNode {
 
@@ -10,6 +9,9 @@ public class IfClause extends ASTNode {
     public ArrayList<ASTNode> body = new ArrayList<>();
     public ElseClause elseClause;
 
+    //Where the condition starts, for a literal that has no position of its own, see ASTNode.getChildLine
+    private int conditionLine, conditionColumn;
+
     public IfClause() { }
 
     public IfClause(Expression conditionalExpression, ArrayList<ASTNode> body) {
@@ -39,8 +41,43 @@ public class IfClause extends ASTNode {
         return children;
     }
 
+    @Override
+    public int getChildCount() {
+        return 1 + body.size() + (elseClause != null ? 1 : 0);
+    }
+
+    @Override
+    public ASTNode getChild(int index) {
+        if (index == 0)
+            return conditionalExpression;
+        if (index == body.size() + 1 && elseClause != null)
+            return elseClause;
+        return body.get(index - 1);
+    }
+
+    @Override
+    public int getChildLine(int index) {
+        int line = super.getChildLine(index);
+        return line != 0 || index != 0 ? line : conditionLine;
+    }
+
+    @Override
+    public int getChildColumn(int index) {
+        int column = super.getChildColumn(index);
+        return column != 0 || index != 0 ? column : conditionColumn;
+    }
+
+    @Override
+    public void setChildPosition(int index, int line, int column) {
+        if (index == 0) {
+            conditionLine = line;
+            conditionColumn = column;
+        }
+    }
+
     @Override
     public ASTNode addChild(ASTNode child) {
+        checkNotSealed();
         if(child instanceof Expression)
             conditionalExpression  = (Expression) child;
         else if (child instanceof ElseClause)
@@ -50,26 +87,6 @@ public class IfClause extends ASTNode {
 
         return this;
     }
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        if (!super.equals(o)) return false;
-        IfClause ifClause = (IfClause) o;
-        if (this.elseClause == null)
-            return Objects.equals(conditionalExpression, ifClause.getConditionalExpression()) &&
-                Objects.equals(body, ifClause.body);
-        else
-            return Objects.equals(conditionalExpression, ifClause.getConditionalExpression()) &&
-                    Objects.equals(body, ifClause.body) &&
-                    Objects.equals(elseClause, ifClause.elseClause);
-
-    }
-
-    @Override
-    public int hashCode() {
-        return Objects.hash(conditionalExpression, body, elseClause);
-    }
 
     public Expression getConditionalExpression() {
         return conditionalExpression;
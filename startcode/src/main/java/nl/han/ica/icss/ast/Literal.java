@@ -1,4 +1,79 @@
 package nl.han.ica.icss.ast;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import nl.han.ica.icss.checker.SemanticError;
+
+/*
+ Literals are immutable. The valueOf factories of the literal classes return one shared instance per value,
+ so the same value in many places of a tree (or of many trees) is one object and equals stops at identity.
+ Small numbers come from a cache per class, other values are interned weakly, so unused ones can be collected.
+
+ Because a shared literal can be in many places at once, it has no position and does not keep an error: its
+ parent keeps the position of each use (see ASTNode.getChildLine), and the checker puts an unshared copy with
+ that position in the place of a literal that is wrong, which holds the error. setPosition and setError throw on
+ a shared literal, so such an error is not lost. A literal made with a constructor or copy is not shared and has
+ a position and an error like any other node.
+ */
 public abstract class Literal extends Expression {
+
+	private static final Interner<Literal> INTERNER = Interners.newWeakInterner();
+
+	//Set before the literal is published, so it never changes afterwards
+	private boolean shared;
+
+	/*
+	 Returns the shared literal equal to the given one, the given one becomes shared when there is none yet.
+	 */
+	@SuppressWarnings("unchecked")
+	protected static <T extends Literal> T intern(T literal) {
+		return (T) INTERNER.intern(share(literal));
+	}
+	/*
+	 Marks a new literal as shared, for the caches of the literal classes
+	 */
+	protected static <T extends Literal> T share(T literal) {
+		((Literal) literal).shared = true;
+		return literal;
+	}
+	public boolean isShared() {
+		return shared;
+	}
+
+	/*
+	 Returns an unshared literal with the same value, for one place in one tree
+	 */
+	public abstract Literal copy();
+
+	/*
+	 Nothing to do: a literal has no children. A shared literal is used by other trees and threads, so it
+	 must not be written when one of them is sealed.
+	 */
+	@Override
+	public void seal() {
+	}
+
+	//A shared literal is in more than one place, so it keeps no position or error. Give them to a copy instead.
+	@Override
+	public void setPosition(int line, int column) {
+		checkNotShared();
+		super.setPosition(line, column);
+	}
+
+	@Override
+	public void setError(String description) {
+		checkNotShared();
+		super.setError(description);
+	}
+
+	@Override
+	public void setError(SemanticError error) {
+		checkNotShared();
+		super.setError(error);
+	}
+
+	private void checkNotShared() {
+		if (shared)
+			throw new IllegalStateException(getNodeLabel() + " is shared, give the position or error to a copy");
+	}
 }
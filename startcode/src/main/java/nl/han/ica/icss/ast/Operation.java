@@ -7,6 +7,9 @@ public abstract class Operation extends Expression {
     public Expression lhs;
     public Expression rhs;
 
+    //Where the operands start, for literals that have no position of their own, see ASTNode.getChildLine
+    private int lhsLine, lhsColumn, rhsLine, rhsColumn;
+
     @Override
     public ArrayList<ASTNode> getChildren() {
         ArrayList<ASTNode> children = new ArrayList<>();
@@ -17,8 +20,46 @@ public abstract class Operation extends Expression {
         return children;
     }
 
+    @Override
+    public int getChildCount() {
+        return (lhs != null ? 1 : 0) + (rhs != null ? 1 : 0);
+    }
+
+    @Override
+    public ASTNode getChild(int index) {
+        if (index == 0 && lhs != null)
+            return lhs;
+        if (index == (lhs != null ? 1 : 0) && rhs != null)
+            return rhs;
+        return super.getChild(index);
+    }
+
+    @Override
+    public int getChildLine(int index) {
+        int line = super.getChildLine(index);
+        return line != 0 ? line : index == 0 ? lhsLine : rhsLine;
+    }
+
+    @Override
+    public int getChildColumn(int index) {
+        int column = super.getChildColumn(index);
+        return column != 0 ? column : index == 0 ? lhsColumn : rhsColumn;
+    }
+
+    @Override
+    public void setChildPosition(int index, int line, int column) {
+        if (index == 0) {
+            lhsLine = line;
+            lhsColumn = column;
+        } else {
+            rhsLine = line;
+            rhsColumn = column;
+        }
+    }
+
     @Override
     public ASTNode addChild(ASTNode child) {
+        checkNotSealed();
         if(lhs == null) {
             lhs = (Expression) child;
         } else if(rhs == null) {
@@ -1,7 +1,6 @@
 package nl.han.ica.icss.ast;
 
 import java.util.ArrayList;
-import java.util.Objects;
 
 /**
  * An assignment binds a expression to an identifier.
@@ -19,6 +18,7 @@ public class VariableAssignment extends ASTNode {
 
 	@Override
 	public ASTNode addChild(ASTNode child) {
+		checkNotSealed();
 		if(name == null) {
 			name = (VariableReference) child;
 		} else if(expression == null) {
@@ -40,17 +40,15 @@ public class VariableAssignment extends ASTNode {
 	}
 
 	@Override
-	public boolean equals(Object o) {
-		if (this == o) return true;
-		if (o == null || getClass() != o.getClass()) return false;
-		if (!super.equals(o)) return false;
-		VariableAssignment that = (VariableAssignment) o;
-		return Objects.equals(name, that.name) &&
-				Objects.equals(expression, that.expression);
+	public int getChildCount() {
+		return (name != null ? 1 : 0) + (expression != null ? 1 : 0);
 	}
-
 	@Override
-	public int hashCode() {
-		return Objects.hash(name, expression);
+	public ASTNode getChild(int index) {
+		if (index == 0 && name != null)
+			return name;
+		if (index == (name != null ? 1 : 0) && expression != null)
+			return expression;
+		return super.getChild(index);
 	}
 }
@@ -0,0 +1,43 @@
+package nl.han.ica.icss.ast;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/*
+ Interns the variable names of one AST to ids 0, 1, 2, ... The parser gives every VariableReference the
+ id of its name, so the checker and the evaluator can keep variables in a HANSymbolTable by id.
+ The methods are synchronized, because parallel checking can intern the names of references that were
+ not made by the parser.
+ */
+public class VariableNames {
+
+	private final HashMap<String, Integer> ids = new HashMap<>();
+	private final ArrayList<String> names = new ArrayList<>();
+
+	public synchronized int intern(String name) {
+		Integer id = ids.get(name);
+		if (id == null) {
+			id = names.size();
+			ids.put(name, id);
+			names.add(name);
+		}
+		return id;
+	}
+
+	/*
+	 Returns the id of the reference. References that were not made by the parser have no id, their name
+	 is looked up instead, the reference is not changed.
+	 */
+	public int getId(VariableReference reference) {
+		int id = reference.getId();
+		return id < 0 ? intern(reference.name) : id;
+	}
+
+	public synchronized String getName(int id) {
+		return names.get(id);
+	}
+
+	public synchronized int size() {
+		return names.size();
+	}
+}
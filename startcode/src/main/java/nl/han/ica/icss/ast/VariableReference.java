@@ -5,10 +5,22 @@ import java.util.Objects;
 public class VariableReference extends Expression {
 
 	public String name;
+
+	//The id of name in the VariableNames of the AST, -1 when it was not made by the parser
+	private final int id;
 	
 	public VariableReference(String name) {
+		this(name, -1);
+	}
+
+	public VariableReference(String name, int id) {
 		super();
 		this.name = name;
+		this.id = id;
+	}
+
+	public int getId() {
+		return id;
 	}
 
 	@Override
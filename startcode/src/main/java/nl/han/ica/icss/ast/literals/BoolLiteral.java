@@ -4,7 +4,10 @@ import nl.han.ica.icss.ast.Literal;
 import java.util.Objects;
 
 public class BoolLiteral extends Literal {
-    public boolean value;
+    public static final BoolLiteral TRUE = share(new BoolLiteral(true));
+    public static final BoolLiteral FALSE = share(new BoolLiteral(false));
+
+    public final boolean value;
 
     public BoolLiteral(boolean value) {
         this.value = value;
@@ -12,6 +15,19 @@ public class BoolLiteral extends Literal {
     public BoolLiteral(String text) {
         this.value = text.equals("TRUE");
     }
+    /*
+     Returns TRUE or FALSE, see Literal
+     */
+    public static BoolLiteral valueOf(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+    public static BoolLiteral valueOf(String text) {
+        return valueOf(text.equals("TRUE"));
+    }
+    @Override
+    public BoolLiteral copy() {
+        return new BoolLiteral(value);
+    }
     @Override
     public String getNodeLabel() {
         String textValue = value ? "TRUE" : "FALSE";
@@ -5,11 +5,21 @@ import nl.han.ica.icss.ast.Literal;
 import java.util.Objects;
 
 public class ColorLiteral extends Literal {
-    public String value;
+    public final String value;
 
     public ColorLiteral(String value) {
         this.value = value;
     }
+    /*
+     Returns the shared literal with this color, see Literal
+     */
+    public static ColorLiteral valueOf(String value) {
+        return intern(new ColorLiteral(value));
+    }
+    @Override
+    public ColorLiteral copy() {
+        return new ColorLiteral(value);
+    }
     @Override
     public String getNodeLabel() {
         return "Color literal (" + value + ")";
@@ -5,7 +5,16 @@ import nl.han.ica.icss.ast.Literal;
 import java.util.Objects;
 
 public class PercentageLiteral extends Literal {
-    public int value;
+    // The percentages from 0 up to CACHE_SIZE, the most common ones
+    private static final int CACHE_SIZE = 101;
+    private static final PercentageLiteral[] CACHE = new PercentageLiteral[CACHE_SIZE];
+    static {
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            CACHE[i] = share(new PercentageLiteral(i));
+        }
+    }
+
+    public final int value;
 
     public PercentageLiteral(int value) {
         this.value = value;
@@ -13,6 +22,22 @@ public class PercentageLiteral extends Literal {
     public PercentageLiteral(String text) {
         this.value = Integer.parseInt(text.substring(0, text.length() - 1));
     }
+    /*
+     Returns the shared literal with this value, see Literal
+     */
+    public static PercentageLiteral valueOf(int value) {
+        if (value >= 0 && value < CACHE_SIZE) {
+            return CACHE[value];
+        }
+        return intern(new PercentageLiteral(value));
+    }
+    public static PercentageLiteral valueOf(String text) {
+        return valueOf(Integer.parseInt(text.substring(0, text.length() - 1)));
+    }
+    @Override
+    public PercentageLiteral copy() {
+        return new PercentageLiteral(value);
+    }
     @Override
     public String getNodeLabel() {
         return "Percentage literal (" + value + ")";
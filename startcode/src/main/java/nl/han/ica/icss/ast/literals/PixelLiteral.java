@@ -5,7 +5,16 @@ import nl.han.ica.icss.ast.Literal;
 import java.util.Objects;
 
 public class PixelLiteral extends Literal {
-    public int value;
+    // The pixels from 0 up to CACHE_SIZE, the most common ones
+    private static final int CACHE_SIZE = 1024;
+    private static final PixelLiteral[] CACHE = new PixelLiteral[CACHE_SIZE];
+    static {
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            CACHE[i] = share(new PixelLiteral(i));
+        }
+    }
+
+    public final int value;
 
     public PixelLiteral(int value) {
         this.value = value;
@@ -13,6 +22,22 @@ public class PixelLiteral extends Literal {
     public PixelLiteral(String text) {
         this.value = Integer.parseInt(text.substring(0, text.length() - 2));
     }
+    /*
+     Returns the shared literal with this value, see Literal
+     */
+    public static PixelLiteral valueOf(int value) {
+        if (value >= 0 && value < CACHE_SIZE) {
+            return CACHE[value];
+        }
+        return intern(new PixelLiteral(value));
+    }
+    public static PixelLiteral valueOf(String text) {
+        return valueOf(Integer.parseInt(text.substring(0, text.length() - 2)));
+    }
+    @Override
+    public PixelLiteral copy() {
+        return new PixelLiteral(value);
+    }
     @Override
     public String getNodeLabel() {
         return "Pixel literal (" + value + ")";
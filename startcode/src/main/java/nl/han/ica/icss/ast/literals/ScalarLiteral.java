@@ -5,7 +5,16 @@ import nl.han.ica.icss.ast.Literal;
 import java.util.Objects;
 
 public class ScalarLiteral extends Literal {
-    public int value;
+    // The scalars from 0 up to CACHE_SIZE, the most common ones
+    private static final int CACHE_SIZE = 101;
+    private static final ScalarLiteral[] CACHE = new ScalarLiteral[CACHE_SIZE];
+    static {
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            CACHE[i] = share(new ScalarLiteral(i));
+        }
+    }
+
+    public final int value;
 
     public ScalarLiteral(int value) {
         this.value = value;
@@ -13,6 +22,22 @@ public class ScalarLiteral extends Literal {
     public ScalarLiteral(String text) {
         this.value = Integer.parseInt(text);
     }
+    /*
+     Returns the shared literal with this value, see Literal
+     */
+    public static ScalarLiteral valueOf(int value) {
+        if (value >= 0 && value < CACHE_SIZE) {
+            return CACHE[value];
+        }
+        return intern(new ScalarLiteral(value));
+    }
+    public static ScalarLiteral valueOf(String text) {
+        return valueOf(Integer.parseInt(text));
+    }
+    @Override
+    public ScalarLiteral copy() {
+        return new ScalarLiteral(value);
+    }
     @Override
     public String getNodeLabel() {
         return "Scalar literal (" + value + ")";
@@ -0,0 +1,422 @@
+package nl.han.ica.icss.batch;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.cache.CompileCache;
+import nl.han.ica.icss.cache.CompileResult;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Headless entry point that compiles whole directory trees of .icss files.
+ * Every file gets its own Pipeline and is compiled on a work-stealing pool, the generated
+ * .css file is written next to its input.
+ *
+ * This class must not touch anything from the gui package, so no JavaFX classes get loaded.
+ */
+public class BatchCompiler
+{
+    private static final String INPUT_EXTENSION = ".icss";
+    private static final String OUTPUT_EXTENSION = ".css";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final long DEFAULT_CACHE_MEGABYTES = 256;
+    private static final String USAGE =
+            "Usage: BatchCompiler [--threads n] [--minify] [--fused] [--cache dir] [--cache-size MB] <directory|file|glob>...";
+
+    private final int threads;
+    private final boolean minify;
+    private final boolean fused;
+    private final PrintStream out;
+    private final PrintStream err;
+    private CompileCache cache;
+
+    public BatchCompiler(int threads, boolean minify, boolean fused, PrintStream out, PrintStream err)
+    {
+        this.threads = threads;
+        this.minify = minify;
+        this.fused = fused;
+        this.out = out;
+        this.err = err;
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean minify = false;
+        boolean fused = false;
+        Path cacheDirectory = null;
+        long cacheMegabytes = DEFAULT_CACHE_MEGABYTES;
+        List<String> inputs = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++)
+        {
+            if (args[i].equals("--threads"))
+            {
+                threads = (int) parsePositive(optionValue(args, ++i), Integer.MAX_VALUE);
+            }
+            else if (args[i].equals("--minify"))
+            {
+                minify = true;
+            }
+            else if (args[i].equals("--fused"))
+            {
+                fused = true;
+            }
+            else if (args[i].equals("--cache"))
+            {
+                cacheDirectory = Paths.get(optionValue(args, ++i));
+            }
+            else if (args[i].equals("--cache-size"))
+            {
+                cacheMegabytes = parsePositive(optionValue(args, ++i), Long.MAX_VALUE / (1024 * 1024));
+            }
+            else
+            {
+                inputs.add(args[i]);
+            }
+        }
+
+        if (inputs.isEmpty())
+        {
+            usage();
+        }
+
+        BatchCompiler compiler = new BatchCompiler(threads, minify, fused, System.out, System.err);
+        if (cacheDirectory != null)
+        {
+            compiler.setCache(new CompileCache(cacheDirectory, cacheMegabytes * 1024 * 1024));
+        }
+        int failed = compiler.compile(compiler.findInputs(inputs));
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    // The value of the option before index, an option without a value stops with the usage
+    private static String optionValue(String[] args, int index)
+    {
+        if (index < args.length)
+        {
+            return args[index];
+        }
+        System.err.println("Missing value for " + args[index - 1]);
+        usage();
+        return null;
+    }
+
+    // A number of threads or megabytes, anything else stops with the usage
+    private static long parsePositive(String value, long max)
+    {
+        try
+        {
+            long number = Long.parseLong(value);
+            if (number > 0 && number <= max)
+            {
+                return number;
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            // Reported below
+        }
+        System.err.println("Not a positive number: " + value);
+        usage();
+        return 0;
+    }
+
+    private static void usage()
+    {
+        System.err.println(USAGE);
+        System.exit(2);
+    }
+
+    /**
+     * Keeps the results in a cache, so files that did not change since an earlier run are not compiled again
+     * @param cache the cache, null to compile every file
+     */
+    public void setCache(CompileCache cache)
+    {
+        this.cache = cache;
+    }
+
+    /**
+     * Resolves directories, single files and glob patterns (e.g. src/**.icss) to a sorted list of .icss files
+     * @param inputs the directories, files and/or globs to look in
+     * @return all .icss files that were found, without duplicates
+     */
+    public List<Path> findInputs(List<String> inputs) throws IOException
+    {
+        List<Path> files = new ArrayList<>();
+
+        for (String input : inputs)
+        {
+            if (isGlob(input))
+            {
+                PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + input);
+                try (Stream<Path> paths = Files.walk(globBase(input)))
+                {
+                    files.addAll(paths.filter(path -> Files.isRegularFile(path) && matcher.matches(path))
+                            .collect(Collectors.toList()));
+                }
+            }
+            else if (Files.isDirectory(Paths.get(input)))
+            {
+                try (Stream<Path> paths = Files.walk(Paths.get(input)))
+                {
+                    files.addAll(paths.filter(path -> Files.isRegularFile(path) && path.toString().endsWith(INPUT_EXTENSION))
+                            .collect(Collectors.toList()));
+                }
+            }
+            else
+            {
+                files.add(Paths.get(input));
+            }
+        }
+
+        return files.stream().distinct().sorted().collect(Collectors.toList());
+    }
+
+    /**
+     * Compiles all files in parallel and reports the errors per file and the total throughput
+     * @param files the .icss files to compile
+     * @return the number of files that failed to compile
+     */
+    public int compile(List<Path> files)
+    {
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newWorkStealingPool(threads);
+
+        List<Future<FileResult>> futures = new ArrayList<>(files.size());
+        for (Path file : files)
+        {
+            futures.add(pool.submit(() -> compileFile(file)));
+        }
+
+        // Results are reported in input order, so the output does not depend on the scheduling.
+        int failed = 0;
+        long bytes = 0;
+        for (Future<FileResult> future : futures)
+        {
+            FileResult result = waitFor(future);
+            bytes += result.bytes;
+            if (!result.errors.isEmpty())
+            {
+                failed++;
+                for (String error : result.errors)
+                {
+                    err.println(result.input + ": " + error);
+                }
+            }
+        }
+        pool.shutdown();
+
+        double seconds = Math.max(System.nanoTime() - start, 1) / 1_000_000_000.0;
+        out.println(String.format(Locale.ROOT, "Compiled %d files (%d failed) in %.3f s: %.1f files/s, %.2f MB/s",
+                files.size(), failed, seconds, files.size() / seconds, bytes / seconds / (1024 * 1024)));
+        if (cache != null)
+        {
+            out.println(String.format(Locale.ROOT, "Cache: %d hits, %d misses, %d evicted",
+                    cache.getHits(), cache.getMisses(), cache.getEvictions()));
+        }
+
+        return failed;
+    }
+
+    private FileResult compileFile(Path input)
+    {
+        FileResult result = new FileResult(input);
+        try
+        {
+            if (cache != null)
+            {
+                compileCached(input, result);
+            }
+            else
+            {
+                compileUncached(input, result);
+            }
+        }
+        catch (IOException | RuntimeException e)
+        {
+            result.errors.add(e.toString());
+        }
+
+        // The CSS of an earlier compile would look like the output of this one
+        if (!result.errors.isEmpty())
+        {
+            try
+            {
+                Files.deleteIfExists(outputPath(input));
+            }
+            catch (IOException e)
+            {
+                result.errors.add("Could not delete the old output: " + e);
+            }
+        }
+        return result;
+    }
+
+    private void compileUncached(Path input, FileResult result) throws IOException
+    {
+        result.bytes = Files.size(input);
+
+        // A fresh pipeline per file, pipelines keep state and are not thread safe.
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseFile(input);
+        if (fused)
+        {
+            compileFused(pipeline, input);
+        }
+        else if (pipeline.isParsed() && pipeline.check())
+        {
+            pipeline.transform();
+            writeOutput(input, temp ->
+            {
+                try (FileChannel output = FileChannel.open(temp, StandardOpenOption.WRITE))
+                {
+                    pipeline.generate(output, minify);
+                }
+            });
+        }
+        result.errors.addAll(pipeline.getErrors());
+    }
+
+    // Check, evaluate and generate in one walk, only the CSS of a file without errors is written.
+    private void compileFused(Pipeline pipeline, Path input) throws IOException
+    {
+        if (!pipeline.isParsed())
+        {
+            return;
+        }
+
+        String css = pipeline.compile(minify);
+        if (css != null)
+        {
+            writeOutput(input, temp -> Files.writeString(temp, css));
+        }
+    }
+
+    // With a cache the source is read once, for the key and for compiling it on a miss.
+    private void compileCached(Path input, FileResult result) throws IOException
+    {
+        byte[] source = Files.readAllBytes(input);
+        result.bytes = source.length;
+
+        CompileResult compiled = new Pipeline().compileSource(source, minify, fused, cache);
+        if (compiled.isSuccess())
+        {
+            writeOutput(input, temp -> Files.writeString(temp, compiled.getCss()));
+        }
+        result.errors.addAll(compiled.getErrors());
+    }
+
+    /*
+     The CSS is written to a temporary file next to the output and then moved over it, like CompileCache
+     does, so a crash or a failing generate never leaves half a .css file behind.
+     */
+    private static void writeOutput(Path input, OutputWriter writer) throws IOException
+    {
+        Path output = outputPath(input).toAbsolutePath();
+        Path temp = Files.createTempFile(output.getParent(), "." + output.getFileName(), TEMP_SUFFIX);
+        try
+        {
+            writer.write(temp);
+            move(temp, output);
+        }
+        finally
+        {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException
+    {
+        try
+        {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (AtomicMoveNotSupportedException e)
+        {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private FileResult waitFor(Future<FileResult> future)
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while compiling", e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static Path outputPath(Path input)
+    {
+        String name = input.getFileName().toString();
+        if (name.endsWith(INPUT_EXTENSION))
+        {
+            name = name.substring(0, name.length() - INPUT_EXTENSION.length());
+        }
+        return input.resolveSibling(name + OUTPUT_EXTENSION);
+    }
+
+    private static boolean isGlob(String input)
+    {
+        return firstWildcard(input) >= 0;
+    }
+
+    private static int firstWildcard(String input)
+    {
+        for (int i = 0; i < input.length(); i++)
+        {
+            char c = input.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '{')
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // The directory to walk for a glob is everything before the path element that holds the first wildcard.
+    // An empty path walks the working directory and keeps the found paths relative, so they match the glob.
+    private static Path globBase(String glob)
+    {
+        int separator = glob.lastIndexOf('/', firstWildcard(glob));
+        return Paths.get(separator < 0 ? "" : glob.substring(0, separator + 1));
+    }
+
+    private interface OutputWriter
+    {
+        void write(Path temp) throws IOException;
+    }
+
+    private static class FileResult
+    {
+        private final Path input;
+        private final List<String> errors = new ArrayList<>();
+        private long bytes;
+
+        private FileResult(Path input)
+        {
+            this.input = input;
+        }
+    }
+}
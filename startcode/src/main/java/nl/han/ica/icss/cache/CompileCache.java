@@ -0,0 +1,404 @@
+package nl.han.ica.icss.cache;
+
+import java.io.*;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Persistent cache of compile results in a directory, so unchanged stylesheets are not compiled again by
+ * the next build. An entry is addressed by the SHA-256 of the compiler version, the options and the source
+ * bytes (see key), so a changed source, option or compiler never gets a stale result. The compiler version
+ * includes a hash of the compiler classes, so this holds for development builds with the same version too.
+ *
+ * Entries are written to a temporary file and moved into place atomically, so any number of threads and
+ * processes can share a directory: a reader sees a complete entry or none. A hit touches the modification
+ * time of the entry, and when the directory grows beyond its maximum size the least recently used entries
+ * are removed.
+ */
+public class CompileCache
+{
+    // Change when the format of the entries changes
+    private static final int FORMAT = 1;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    // After eviction the cache is this part of the maximum size, so not every put has to evict
+    private static final double LOW_WATER_MARK = 0.9;
+
+    // Temporary files older than this were left behind by a build that crashed
+    private static final long STALE_TEMP_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final String COMPILER_VERSION = compilerVersion();
+
+    private final Path directory;
+    private final long maxBytes;
+
+    // An estimate, other processes can add entries as well. It is corrected on every eviction.
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Opens a cache directory, it is created when it does not exist
+     * @param directory where the entries are stored
+     * @param maxBytes the size the entries may take together
+     */
+    public CompileCache(Path directory, long maxBytes) throws IOException
+    {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        size.set(totalSize(entries()));
+    }
+
+    /**
+     * Computes the key of a source
+     * @param source the bytes of the source, as they are read from the file
+     * @param options everything else that changes the result, like minify
+     * @return the SHA-256 in hexadecimal
+     */
+    public static String key(byte[] source, String options)
+    {
+        MessageDigest digest = sha256();
+        digest.update((COMPILER_VERSION + '\0' + FORMAT + '\0' + options + '\0').getBytes(StandardCharsets.UTF_8));
+        digest.update(source);
+        return hex(digest.digest());
+    }
+
+    /**
+     * Returns the cached result for a key
+     * @param key see key
+     * @return the result, or null on a miss
+     */
+    public CompileResult get(String key)
+    {
+        Path entry = entryPath(key);
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry))))
+        {
+            CompileResult result = read(input);
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            hits.incrementAndGet();
+            return result;
+        }
+        catch (NoSuchFileException e)
+        {
+            // Not cached, or evicted by another process meanwhile
+        }
+        catch (IOException e)
+        {
+            // A damaged entry is a miss, the next put replaces it
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Stores a result, replacing the entry of the key when there is one
+     * @param key see key
+     * @param result the result to store
+     */
+    public void put(String key, CompileResult result) throws IOException
+    {
+        Path entry = entryPath(key);
+        Files.createDirectories(entry.getParent());
+
+        Path temp = Files.createTempFile(directory, key, TEMP_SUFFIX);
+        try
+        {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))))
+            {
+                write(output, result);
+            }
+            long written = Files.size(temp);
+            long replaced = sizeOf(entry);
+            move(temp, entry);
+
+            if (size.addAndGet(written - replaced) > maxBytes)
+            {
+                evict();
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    public long getEvictions()
+    {
+        return evictions.get();
+    }
+
+    /**
+     * @return the estimated size of all entries in bytes
+     */
+    public long getSize()
+    {
+        return size.get();
+    }
+
+    /*
+     Removes the least recently used entries until the cache is below the low water mark. The directory is
+     scanned again, so entries of other processes are taken into account.
+     */
+    private synchronized void evict() throws IOException
+    {
+        List<Entry> entries = entries();
+        entries.sort(Comparator.comparing((Entry entry) -> entry.lastUsed));
+
+        long total = totalSize(entries);
+        long target = (long) (maxBytes * LOW_WATER_MARK);
+        for (Entry entry : entries)
+        {
+            if (total <= target)
+            {
+                break;
+            }
+            if (Files.deleteIfExists(entry.path))
+            {
+                evictions.incrementAndGet();
+            }
+            total -= entry.size;
+        }
+        size.set(total);
+    }
+
+    private List<Entry> entries() throws IOException
+    {
+        List<Entry> entries = new ArrayList<>();
+        long staleBefore = System.currentTimeMillis() - STALE_TEMP_MILLIS;
+        try (Stream<Path> paths = Files.walk(directory))
+        {
+            for (Path path : (Iterable<Path>) paths::iterator)
+            {
+                BasicFileAttributes attributes;
+                try
+                {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                }
+                catch (NoSuchFileException e)
+                {
+                    continue;
+                }
+                if (!attributes.isRegularFile())
+                {
+                    continue;
+                }
+
+                if (path.getFileName().toString().endsWith(TEMP_SUFFIX))
+                {
+                    if (attributes.lastModifiedTime().toMillis() < staleBefore)
+                    {
+                        Files.deleteIfExists(path);
+                    }
+                    continue;
+                }
+                entries.add(new Entry(path, attributes.size(), attributes.lastModifiedTime()));
+            }
+        }
+        return entries;
+    }
+
+    private static long sizeOf(Path entry) throws IOException
+    {
+        try
+        {
+            return Files.size(entry);
+        }
+        catch (NoSuchFileException e)
+        {
+            return 0;
+        }
+    }
+
+    private static long totalSize(List<Entry> entries)
+    {
+        long total = 0;
+        for (Entry entry : entries)
+        {
+            total += entry.size;
+        }
+        return total;
+    }
+
+    // Two levels, so no directory gets too many entries
+    private Path entryPath(String key)
+    {
+        return directory.resolve(key.substring(0, 2)).resolve(key.substring(2));
+    }
+
+    private static void move(Path source, Path target) throws IOException
+    {
+        try
+        {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (AtomicMoveNotSupportedException e)
+        {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // An entry is a flag for the CSS, the CSS when there is one, the number of errors and the errors
+    private static void write(DataOutputStream output, CompileResult result) throws IOException
+    {
+        output.writeInt(FORMAT);
+        output.writeBoolean(result.isSuccess());
+        if (result.isSuccess())
+        {
+            writeString(output, result.getCss());
+        }
+        output.writeInt(result.getErrors().size());
+        for (String error : result.getErrors())
+        {
+            writeString(output, error);
+        }
+    }
+
+    private static CompileResult read(DataInputStream input) throws IOException
+    {
+        if (input.readInt() != FORMAT)
+        {
+            throw new IOException("Cache entry has another format");
+        }
+        String css = input.readBoolean() ? readString(input) : null;
+        int count = input.readInt();
+        List<String> errors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            errors.add(readString(input));
+        }
+        return new CompileResult(css, errors);
+    }
+
+    // writeUTF is limited to 64 KB, stylesheets are not
+    private static void writeString(DataOutputStream output, String value) throws IOException
+    {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException
+    {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static MessageDigest sha256()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // Every Java platform has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /*
+     The version from the jar manifest and the SHA-256 of the compiler classes. A development build has no
+     version, and a SNAPSHOT keeps it while the compiler changes, the hash tells those builds apart.
+     */
+    private static String compilerVersion()
+    {
+        String version = CompileCache.class.getPackage().getImplementationVersion();
+        return (version != null ? version : "development") + '/' + classesHash();
+    }
+
+    // The jar the compiler is loaded from, or every class file when it runs from a directory of classes
+    private static String classesHash()
+    {
+        try
+        {
+            Path location = Paths.get(CompileCache.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            MessageDigest digest = sha256();
+            if (Files.isDirectory(location))
+            {
+                List<Path> classes;
+                try (Stream<Path> paths = Files.walk(location))
+                {
+                    classes = paths.filter(path -> path.toString().endsWith(".class")).sorted().collect(Collectors.toList());
+                }
+                for (Path path : classes)
+                {
+                    digest.update(location.relativize(path).toString().getBytes(StandardCharsets.UTF_8));
+                    update(digest, path);
+                }
+            }
+            else
+            {
+                update(digest, location);
+            }
+            return hex(digest.digest());
+        }
+        catch (IOException | URISyntaxException | RuntimeException e)
+        {
+            // Without a hash the results of other builds can not be trusted, so only this process uses its results
+            return UUID.randomUUID().toString();
+        }
+    }
+
+    private static void update(MessageDigest digest, Path file) throws IOException
+    {
+        try (InputStream input = Files.newInputStream(file))
+        {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) > 0)
+            {
+                digest.update(buffer, 0, read);
+            }
+        }
+    }
+
+    private static String hex(byte[] bytes)
+    {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes)
+        {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static class Entry
+    {
+        private final Path path;
+        private final long size;
+        private final FileTime lastUsed;
+
+        private Entry(Path path, long size, FileTime lastUsed)
+        {
+            this.path = path;
+            this.size = size;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
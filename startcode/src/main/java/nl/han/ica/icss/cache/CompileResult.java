@@ -0,0 +1,63 @@
+package nl.han.ica.icss.cache;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The outcome of compiling one source: the CSS, or the errors when it did not compile. Results are
+ * immutable, so one result can be handed out by a cache any number of times.
+ */
+public final class CompileResult
+{
+    private final String css;
+    private final List<String> errors;
+
+    /**
+     * @param css the generated CSS, null when there are errors
+     * @param errors the syntax and semantic errors, as Pipeline.getErrors reports them
+     */
+    public CompileResult(String css, List<String> errors)
+    {
+        this.css = css;
+        this.errors = List.copyOf(errors);
+    }
+
+    /**
+     * @return the generated CSS, or null when the source has errors
+     */
+    public String getCss()
+    {
+        return css;
+    }
+
+    public List<String> getErrors()
+    {
+        return errors;
+    }
+
+    public boolean isSuccess()
+    {
+        return css != null;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass())
+        {
+            return false;
+        }
+        CompileResult that = (CompileResult) o;
+        return Objects.equals(css, that.css) && errors.equals(that.errors);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(css, errors);
+    }
+}
@@ -0,0 +1,116 @@
+package nl.han.ica.icss.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import nl.han.ica.icss.Pipeline;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Bounded in-memory cache of compile results for long running processes that compile the same stylesheets
+ * over and over, like a service where many users submit identical sources. Thread safe.
+ *
+ * Results are found by the key of CompileCache, so the sources themselves are not kept. The cache holds at
+ * most a number of characters of CSS and errors, the least recently used results are removed first. When
+ * several threads compile the same source at the same time, only one of them compiles it and the others
+ * wait for its result.
+ */
+public class ResultCache
+{
+    // A result costs memory besides its text, so an empty result still has a weight
+    private static final int ENTRY_WEIGHT = 128;
+
+    private final boolean minify;
+    private final int maxErrors;
+    private final String options;
+    private final Cache<String, CompileResult> cache;
+
+    /**
+     * @param maxChars the number of characters of CSS and errors to keep
+     * @param minify leave out all optional whitespace, see Generator
+     * @param maxErrors the maximum number of semantic errors, see Pipeline.setMaxErrors
+     */
+    public ResultCache(long maxChars, boolean minify, int maxErrors)
+    {
+        this.minify = minify;
+        this.maxErrors = maxErrors;
+        this.options = "minify=" + minify + ",maxErrors=" + maxErrors + ",fused=true";
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxChars)
+                .weigher((String key, CompileResult result) -> weight(result))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Compiles a source, or returns the result of an earlier compile of the same source
+     * @param source the ICSS source
+     * @return the CSS, or the syntax and semantic errors
+     */
+    public CompileResult compile(String source)
+    {
+        String key = CompileCache.key(source.getBytes(StandardCharsets.UTF_8), options);
+        try
+        {
+            return cache.get(key, () -> load(source));
+        }
+        catch (ExecutionException e)
+        {
+            // Loading throws no checked exceptions
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @return the part of the compiles that was answered from the cache, 1.0 before the first compile
+     */
+    public double hitRate()
+    {
+        return cache.stats().hitRate();
+    }
+
+    /**
+     * @return the hits, misses, load times and evictions since the cache was made
+     */
+    public CacheStats stats()
+    {
+        return cache.stats();
+    }
+
+    /**
+     * @return the number of results in the cache
+     */
+    public long size()
+    {
+        return cache.size();
+    }
+
+    public void invalidateAll()
+    {
+        cache.invalidateAll();
+    }
+
+    // A fresh pipeline per compile, pipelines keep state and are not thread safe
+    private CompileResult load(String source)
+    {
+        Pipeline pipeline = new Pipeline();
+        pipeline.setMaxErrors(maxErrors);
+        return pipeline.compileSource(source, minify, true);
+    }
+
+    private static int weight(CompileResult result)
+    {
+        long weight = ENTRY_WEIGHT;
+        if (result.isSuccess())
+        {
+            weight += result.getCss().length();
+        }
+        for (String error : result.getErrors())
+        {
+            weight += error.length();
+        }
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+}
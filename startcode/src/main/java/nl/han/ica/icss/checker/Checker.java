@@ -1,7 +1,7 @@
 package nl.han.ica.icss.checker;
 
-import nl.han.ica.datastructures.HANLinkedList;
-import nl.han.ica.datastructures.IHANLinkedList;
+import nl.han.ica.datastructures.HANSymbolTable;
+import nl.han.ica.datastructures.HANVersionedTable;
 import nl.han.ica.icss.ast.*;
 import nl.han.ica.icss.ast.literals.*;
 import nl.han.ica.icss.ast.operations.AddOperation;
@@ -9,21 +9,89 @@ import nl.han.ica.icss.ast.operations.MultiplyOperation;
 import nl.han.ica.icss.ast.operations.SubtractOperation;
 import nl.han.ica.icss.ast.types.ExpressionType;
 
-import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 
 public class Checker
 {
+    // The number of rules one parallel task checks, so a task is worth the overhead of scheduling it
+    private static final int RULES_PER_TASK = 64;
 
-    private IHANLinkedList<HashMap<String, ExpressionType>> variableTypes;
+    // The types of the variables by the id of their name, see VariableNames
+    private HANSymbolTable<ExpressionType> variableTypes;
+    private VariableNames variableNames;
+    private ErrorCollector errors;
+    private final int maxErrors;
+    private final boolean parallel;
 
+    // In parallel mode, the types of the global variables at every version and the version of this rule
+    private HANVersionedTable<ExpressionType> globalTypes;
+    private int globalVersion;
+
+    // False while only the types of variables are wanted, see putRuleVariableTypes
+    private boolean reporting = true;
+
+    public Checker()
+    {
+        this(0);
+    }
+
+    /**
+     * @param maxErrors stop checking after this many errors, 0 to find all errors
+     */
+    public Checker(int maxErrors)
+    {
+        this(maxErrors, false);
+    }
+
+    /**
+     * @param maxErrors stop checking after this many errors, 0 to find all errors
+     * @param parallel check the style rules in parallel, see checkStylesheetParallel
+     */
+    public Checker(int maxErrors, boolean parallel)
+    {
+        this.maxErrors = maxErrors;
+        this.parallel = parallel;
+    }
+
+    // A checker for one parallel task, it shares the global types of the stylesheet
+    private Checker(Checker stylesheetChecker)
+    {
+        this(stylesheetChecker.maxErrors, false);
+        variableNames = stylesheetChecker.variableNames;
+        variableTypes = new HANSymbolTable<>(variableNames.size());
+        globalTypes = stylesheetChecker.globalTypes;
+    }
+
+    /**
+     * Checks the tree and gives every node with an error its error. A shared literal can not hold an error,
+     * so where one is wrong the checker changes the tree: an unshared copy takes its place, see literalError.
+     * @param ast the parsed tree
+     */
     public void check(AST ast)
     {
         // Root should always be stylesheet
-        variableTypes = new HANLinkedList<>();
+        variableNames = ast.variableNames;
+        variableTypes = new HANSymbolTable<>(variableNames.size());
+        errors = new ErrorCollector(maxErrors);
         if (ast.root instanceof Stylesheet)
         {
-            checkStylesheet(ast.root);
+            if (parallel)
+            {
+                checkStylesheetParallel(ast.root);
+            }
+            else
+            {
+                checkStylesheet(ast.root);
+            }
+            ast.setErrors(errors.getErrors());
+
+            // Only now, with a maximum an error can be pushed out by an error in front of it
+            for (SemanticError error : errors.getErrors())
+            {
+                error.node.setError(error);
+            }
         }
         else
         {
@@ -34,10 +102,15 @@ public class Checker
     private void checkStylesheet(Stylesheet stylesheet)
     {
         // add scope
-        variableTypes.addFirst(new HashMap<>());
+        variableTypes.openScope();
 
-        for (ASTNode child : stylesheet.getChildren())
+        for (ASTNode child : stylesheet.body)
         {
+            if (errors.isFull())
+            {
+                break;
+            }
+
             if (child instanceof VariableAssignment)
             {
                 checkVariableAssignment((VariableAssignment) child);
@@ -48,19 +121,131 @@ public class Checker
             }
             else
             {
-                child.setError("Stylesheet can only contain variable assignments and style rules on root level");
+                error(child, "Stylesheet can only contain variable assignments and style rules on root level");
             }
         }
 
         // remove Scope
-        variableTypes.removeFirst();
+        variableTypes.closeScope();
+    }
+
+    /*
+     Checks the children that are not style rules in order first, and remembers the version of the global
+     types at the position of every rule. The variables that rules assign are globals as well, their types are
+     put in order too. A rule only reads its own snapshot of the globals, so the rules are checked in parallel,
+     in tasks of RULES_PER_TASK rules with a checker each. Every child collects its own errors, they are
+     merged in the order of the stylesheet afterwards, so the errors are the same as those of checkStylesheet.
+
+     With a maximum number of errors, the tasks run in waves of as many tasks as there are threads, and the
+     errors of a wave are merged before the next one starts. Once the maximum is reached no more rules are
+     checked: the stylesheet and its rules add no errors after their children, so later rules can only add
+     errors that are dropped. A task stops as soon as its own rules found the maximum for the same reason.
+     */
+    private void checkStylesheetParallel(Stylesheet stylesheet)
+    {
+        globalTypes = new HANVersionedTable<>(variableNames.size());
+
+        int size = stylesheet.body.size();
+        ErrorCollector stylesheetErrors = errors;
+        ErrorCollector[] childErrors = new ErrorCollector[size];
+        int[] ruleIndexes = new int[size];
+        int[] ruleVersions = new int[size];
+        int rules = 0;
+        for (int i = 0; i < size; i++)
+        {
+            ASTNode child = stylesheet.body.get(i);
+            if (child instanceof Stylerule)
+            {
+                ruleIndexes[rules] = i;
+                ruleVersions[rules++] = globalTypes.version();
+                putRuleVariableTypes((Stylerule) child);
+                continue;
+            }
+
+            errors = childErrors[i] = new ErrorCollector(maxErrors);
+            globalVersion = globalTypes.version();
+            if (child instanceof VariableAssignment)
+            {
+                VariableAssignment variableAssignment = (VariableAssignment) child;
+                globalTypes.put(variableNames.getId(variableAssignment.name), checkExpressionType(variableAssignment.expression));
+            }
+            else
+            {
+                error(child, "Stylesheet can only contain variable assignments and style rules on root level");
+            }
+        }
+        errors = stylesheetErrors;
+
+        int ruleCount = rules;
+        int tasks = (ruleCount + RULES_PER_TASK - 1) / RULES_PER_TASK;
+        int wave = maxErrors > 0 ? Math.max(1, ForkJoinPool.getCommonPoolParallelism()) : Math.max(1, tasks);
+        int merged = 0;
+        for (int first = 0; first < tasks && !errors.isFull(); first += wave)
+        {
+            IntStream.range(first, Math.min(tasks, first + wave)).parallel().forEach(task ->
+            {
+                Checker checker = new Checker(this);
+                int found = 0;
+                int end = Math.min(ruleCount, (task + 1) * RULES_PER_TASK);
+                for (int rule = task * RULES_PER_TASK; rule < end && (maxErrors == 0 || found < maxErrors); rule++)
+                {
+                    checker.errors = childErrors[ruleIndexes[rule]] = new ErrorCollector(maxErrors);
+                    checker.globalVersion = ruleVersions[rule];
+
+                    // The variables of the rule are in the globals from the next version on, so forget them after it
+                    checker.variableTypes.openScope();
+                    checker.checkStyleRule((Stylerule) stylesheet.body.get(ruleIndexes[rule]));
+                    checker.variableTypes.closeScope();
+                    found += checker.errors.getErrors().size();
+                }
+            });
+
+            // Merge up to the first rule of the next wave, the children in between were checked already
+            int next = (first + wave) * RULES_PER_TASK;
+            int end = next < ruleCount ? ruleIndexes[next] : size;
+            for (; merged < end; merged++)
+            {
+                if (childErrors[merged] != null)
+                {
+                    errors.addAll(childErrors[merged]);
+                }
+            }
+        }
+
+        // The children after the last wave, or all children when there are no rules
+        for (; merged < size; merged++)
+        {
+            if (childErrors[merged] != null)
+            {
+                errors.addAll(childErrors[merged]);
+            }
+        }
+    }
+
+    /*
+     A rule has no scope of its own, so the variables it assigns directly are known in the rules after it.
+     Puts their types in the globals, the errors in their expressions are reported when the rule is checked.
+     */
+    private void putRuleVariableTypes(Stylerule stylerule)
+    {
+        reporting = false;
+        for (ASTNode child : stylerule.body)
+        {
+            if (child instanceof VariableAssignment)
+            {
+                VariableAssignment variableAssignment = (VariableAssignment) child;
+                globalVersion = globalTypes.version();
+                globalTypes.put(variableNames.getId(variableAssignment.name), checkExpressionType(variableAssignment.expression));
+            }
+        }
+        reporting = true;
     }
 
     private void checkVariableAssignment(VariableAssignment variableAssignment)
     {
         // variableAssignment.name is of type VariableReference,
         // so variableAssignment.name.name gets the name out of the VariableReference
-        variableTypes.getFirst().put(variableAssignment.name.name, checkExpressionType(variableAssignment.expression));
+        variableTypes.put(variableNames.getId(variableAssignment.name), checkExpressionType(variableAssignment.expression));
     }
 
     private void checkStyleRule(Stylerule stylerule)
@@ -68,6 +253,11 @@ public class Checker
         // Check all children
         for (ASTNode child : stylerule.body)
         {
+            if (errors.isFull())
+            {
+                break;
+            }
+
             if (child instanceof Declaration)
             {
                 checkDeclaration((Declaration) child);
@@ -82,11 +272,11 @@ public class Checker
             }
             else if (child instanceof Stylerule)
             {
-                child.setError("Nesting of style rules is not supported");
+                error(child, "Nesting of style rules is not supported");
             }
             else
             {
-                child.setError("Style rule can only contain declarations, if clauses and variable assignments");
+                error(child, "Style rule can only contain declarations, if clauses and variable assignments");
             }
         }
     }
@@ -96,6 +286,7 @@ public class Checker
         // Declaration always has propertyName and expression.
         // propertyName SHOULD always be correct in this phase.
         // expression should be checked.
+        int mark = errors.mark();
         ExpressionType expressionType = checkExpressionType(declaration.expression);
         if (expressionType != ExpressionType.UNDEFINED)
         {
@@ -112,29 +303,29 @@ public class Checker
                 case "background-color":
                     if (expressionType != ExpressionType.COLOR)
                     {
-                        declaration.setError("Only color expressions are allowed for background-color");
+                        error(declaration, "Only color expressions are allowed for background-color", mark);
                     }
                     break;
                 case "width":
                     if (expressionType != ExpressionType.PIXEL && expressionType != ExpressionType.PERCENTAGE)
                     {
-                        declaration.setError("Only pixel and percentage expressions are allowed for width");
+                        error(declaration, "Only pixel and percentage expressions are allowed for width", mark);
                     }
                     break;
                 case "color":
                     if (expressionType != ExpressionType.COLOR)
                     {
-                        declaration.setError("Only color expressions are allowed for color");
+                        error(declaration, "Only color expressions are allowed for color", mark);
                     }
                     break;
                 case "height":
                     if (expressionType != ExpressionType.PIXEL)
                     {
-                        declaration.setError("Only pixel expressions are allowed for height");
+                        error(declaration, "Only pixel expressions are allowed for height", mark);
                     }
                     break;
                 default:
-                    declaration.setError("Unknown property name, only background-color, width, color and height are allowed");
+                    error(declaration, "Unknown property name, only background-color, width, color and height are allowed", mark);
             }
         }
     }
@@ -172,43 +363,51 @@ public class Checker
             return ExpressionType.BOOL;
         }
 
-        expression.setError("Unknown expression type");
+        error(expression, "Unknown expression type");
         return ExpressionType.UNDEFINED;
     }
 
     private ExpressionType checkVariableReferenceType(VariableReference variableReference)
     {
-        // Walk through all variableTypes and try to find this variable
-        for (HashMap<String, ExpressionType> scope : variableTypes)
+        // The symbol table holds the type of the innermost scope that has this variable
+        int id = variableNames.getId(variableReference);
+        ExpressionType type = variableTypes.get(id);
+        if (type == null && globalTypes != null)
         {
-            if (scope.containsKey(variableReference.name))
-            {
-                return scope.get(variableReference.name);
-            }
+            type = globalTypes.get(id, globalVersion);
+        }
+        if (type != null)
+        {
+            return type;
         }
 
         // CH01: Variable is not defined.
         // CH06: Variable can't be used outside of scope.
-        variableReference.setError(String.format("Variable '%s' is not defined in current scope.", variableReference.name));
+        error(variableReference, String.format("Variable '%s' is not defined in current scope.", variableReference.name));
         return ExpressionType.UNDEFINED;
     }
 
     private void checkIfClause(IfClause ifClause)
     {
         // Add new scope
-        variableTypes.addFirst(new HashMap<>());
+        variableTypes.openScope();
 
         // CH05: If clause can only have boolean variable references or boolean literals
         if (ifClause.conditionalExpression instanceof VariableReference)
         {
             if (checkVariableReferenceType((VariableReference) ifClause.conditionalExpression) != ExpressionType.BOOL)
             {
-                ifClause.conditionalExpression.setError("The if clause can only be of type boolean");
+                // A node holds one error, so an undefined variable gets this error instead
+                replaceError(ifClause.conditionalExpression, "The if clause can only be of type boolean");
             }
         }
+        else if (ifClause.conditionalExpression == null)
+        {
+            error(ifClause, "The if clause can only be of type boolean");
+        }
         else if (!(ifClause.conditionalExpression instanceof BoolLiteral))
         {
-            ifClause.conditionalExpression.setError("The if clause can only be of type boolean");
+            literalError(ifClause, 0, "The if clause can only be of type boolean");
         }
 
         // Check all children
@@ -232,21 +431,21 @@ public class Checker
             }
             else
             {
-                child.setError("If clause can only contain boolean expressions, variable assignments, declarations, if- and else clauses");
+                error(child, "If clause can only contain boolean expressions, variable assignments, declarations, if- and else clauses");
             }
         }
 
         // Remove scope
-        variableTypes.removeFirst();
+        variableTypes.closeScope();
     }
 
     private void checkElseClause(ElseClause elseClause)
     {
         // Add new scope
-        variableTypes.addFirst(new HashMap<>());
+        variableTypes.openScope();
 
         // Check all children
-        for (ASTNode child : elseClause.getChildren())
+        for (ASTNode child : elseClause.body)
         {
             if (child instanceof VariableAssignment)
             {
@@ -262,50 +461,53 @@ public class Checker
             }
             else
             {
-                child.setError("Else clause can only contain variable assignments, declarations and if clauses");
+                error(child, "Else clause can only contain variable assignments, declarations and if clauses");
             }
         }
 
         // Remove scope
-        variableTypes.removeFirst();
+        variableTypes.closeScope();
     }
 
     private ExpressionType checkOperationType(Operation operation)
     {
+        int mark = errors.mark();
+
         // Check all children
         // CH03: Operations can't contain color literals.
-        for (ASTNode child : operation.getChildren())
+        for (int i = 0; i < operation.getChildCount(); i++)
         {
+            ASTNode child = operation.getChild(i);
             if (child instanceof ColorLiteral)
             {
-                child.setError("Color literals are not allowed in operations");
+                literalError(operation, i, "Color literals are not allowed in operations");
                 return ExpressionType.UNDEFINED;
             }
             else if (child instanceof BoolLiteral)
             {
-                child.setError("Boolean literals are not allowed in operations");
+                literalError(operation, i, "Boolean literals are not allowed in operations");
                 return ExpressionType.UNDEFINED;
             }
         }
 
         if (operation instanceof AddOperation)
         {
-            return checkAddOperationType((AddOperation) operation);
+            return checkAddOperationType((AddOperation) operation, mark);
         }
         if (operation instanceof SubtractOperation)
         {
-            return checkSubtractOperationType((SubtractOperation) operation);
+            return checkSubtractOperationType((SubtractOperation) operation, mark);
         }
         if (operation instanceof MultiplyOperation)
         {
-            return checkMultiplyOperationType((MultiplyOperation) operation);
+            return checkMultiplyOperationType((MultiplyOperation) operation, mark);
         }
 
-        operation.setError(String.format("Operation type '%s' is not supported.", operation.getClass().getName()));
+        error(operation, String.format("Operation type '%s' is not supported.", operation.getClass().getName()), mark);
         return ExpressionType.UNDEFINED;
     }
 
-    private ExpressionType checkAddOperationType(AddOperation addOperation)
+    private ExpressionType checkAddOperationType(AddOperation addOperation, int mark)
     {
         ExpressionType leftType = checkExpressionType(addOperation.lhs);
         ExpressionType rightType = checkExpressionType(addOperation.rhs);
@@ -316,11 +518,11 @@ public class Checker
             return leftType;
         }
 
-        addOperation.setError("Add operation can only be used with expressions of the same type");
+        error(addOperation, "Add operation can only be used with expressions of the same type", mark);
         return ExpressionType.UNDEFINED;
     }
 
-    private ExpressionType checkSubtractOperationType(SubtractOperation subtractOperation)
+    private ExpressionType checkSubtractOperationType(SubtractOperation subtractOperation, int mark)
     {
         ExpressionType leftType = checkExpressionType(subtractOperation.lhs);
         ExpressionType rightType = checkExpressionType(subtractOperation.rhs);
@@ -331,11 +533,11 @@ public class Checker
             return leftType;
         }
 
-        subtractOperation.setError("Subtract operation can only be used with expressions of the same type");
+        error(subtractOperation, "Subtract operation can only be used with expressions of the same type", mark);
         return ExpressionType.UNDEFINED;
     }
 
-    private ExpressionType checkMultiplyOperationType(MultiplyOperation multiplyOperation)
+    private ExpressionType checkMultiplyOperationType(MultiplyOperation multiplyOperation, int mark)
     {
         ExpressionType leftType = checkExpressionType(multiplyOperation.lhs);
         ExpressionType rightType = checkExpressionType(multiplyOperation.rhs);
@@ -344,11 +546,69 @@ public class Checker
         // expression or scalar and scalar.
         if (leftType != ExpressionType.SCALAR && rightType != ExpressionType.SCALAR)
         {
-            multiplyOperation.setError("Multiply operation can only be used with a scalar and a non-scalar expression or scalar and scalar");
+            error(multiplyOperation, "Multiply operation can only be used with a scalar and a non-scalar expression or scalar and scalar", mark);
             return ExpressionType.UNDEFINED;
         }
 
         return leftType == ExpressionType.SCALAR ? rightType : leftType;
     }
 
-}
\ No newline at end of file
+    private void error(ASTNode node, String description)
+    {
+        error(node, description, errors.mark());
+    }
+
+    // The nodes get their errors when checking is done, see check
+    private void error(ASTNode node, String description, int mark)
+    {
+        if (reporting)
+        {
+            errors.add(node, description, mark);
+        }
+    }
+
+    private void replaceError(ASTNode node, String description)
+    {
+        if (reporting)
+        {
+            errors.replace(node, description);
+        }
+    }
+
+    /*
+     Reports an error on the child of an operation or the condition of an if clause. A shared literal is in
+     every place it is used, so it can not hold the error of one of them (see Literal). This changes the tree:
+     the error goes to an unshared copy with the position of this use, which takes the place of the literal.
+     Other children get the error themselves.
+     */
+    private void literalError(ASTNode parent, int index, String description)
+    {
+        if (!reporting)
+        {
+            return;
+        }
+
+        ASTNode child = parent.getChild(index);
+        if (!(child instanceof Literal) || !((Literal) child).isShared())
+        {
+            error(child, description);
+            return;
+        }
+
+        Literal copy = ((Literal) child).copy();
+        copy.setPosition(parent.getChildLine(index), parent.getChildColumn(index));
+        if (parent instanceof IfClause)
+        {
+            ((IfClause) parent).conditionalExpression = copy;
+        }
+        else if (index == 0)
+        {
+            ((Operation) parent).lhs = copy;
+        }
+        else
+        {
+            ((Operation) parent).rhs = copy;
+        }
+        error(copy, description);
+    }
+}
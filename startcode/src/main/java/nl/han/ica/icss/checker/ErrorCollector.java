@@ -0,0 +1,158 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.ast.ASTNode;
+
+import java.util.ArrayList;
+
+/**
+ * Collects the semantic errors while the checker finds them, in the order AST.getErrors has always
+ * returned them: the order of the nodes in the tree, a node before its children. Getting the errors
+ * afterwards is O(errors) instead of a walk over the whole tree.
+ *
+ * A node is often only known to be wrong after its children have been checked. Take a mark when the node
+ * is entered and add its error at that mark, so it goes in front of the errors of its children.
+ *
+ * With a maximum number of errors, the collector keeps the first errors in that order: when it is full, an
+ * error that goes in front of others takes the place of the last one, and an error that would go last is
+ * dropped. isFull tells the checker it can stop entering nodes, but a node that was already entered can
+ * still add its error at its mark.
+ */
+public class ErrorCollector
+{
+    private final int maxErrors;
+    private final ArrayList<SemanticError> errors = new ArrayList<>();
+
+    public ErrorCollector()
+    {
+        this(0);
+    }
+
+    /**
+     * @param maxErrors the maximum number of errors to collect, 0 for no maximum
+     */
+    public ErrorCollector(int maxErrors)
+    {
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * @return the position for the error of the node that is entered now, see add(ASTNode, String, int)
+     */
+    public int mark()
+    {
+        return errors.size();
+    }
+
+    /**
+     * Adds an error after all errors found so far
+     * @param node the node the error is about
+     * @param description what is wrong
+     * @return the error, or null when the maximum was already reached
+     */
+    public SemanticError add(ASTNode node, String description)
+    {
+        return add(node, description, errors.size());
+    }
+
+    /**
+     * Adds an error in front of the errors that were found after mark was taken
+     * @param node the node the error is about
+     * @param description what is wrong
+     * @param mark the result of mark() when the node was entered
+     * @return the error, or null when the maximum was reached and the error would be the last one
+     */
+    public SemanticError add(ASTNode node, String description, int mark)
+    {
+        return add(new SemanticError(description, node), mark);
+    }
+
+    /**
+     * Adds an error that is not about an AST node, see add(ASTNode, String, int)
+     * @param error the error
+     * @param mark the result of mark() when the node was entered
+     * @return the error, or null when the maximum was reached and the error would be the last one
+     */
+    public SemanticError add(SemanticError error, int mark)
+    {
+        if (isFull())
+        {
+            if (mark >= errors.size())
+            {
+                return null;
+            }
+            errors.remove(errors.size() - 1);
+        }
+
+        errors.add(mark, error);
+        return error;
+    }
+
+    /**
+     * Replaces the last error when it was added after mark was taken, or adds the error otherwise.
+     * See replace(ASTNode, String), for errors that are not about an AST node.
+     * @param error the error
+     * @param mark the result of mark() when the node was entered
+     * @return the error, or null when the maximum was already reached
+     */
+    public SemanticError replace(SemanticError error, int mark)
+    {
+        if (errors.size() > mark)
+        {
+            errors.set(errors.size() - 1, error);
+            return error;
+        }
+        return add(error, errors.size());
+    }
+
+    /**
+     * Replaces the error of the node when it is the last error that was added, or adds one otherwise.
+     * A node holds only one error, so a second error for the same node takes the place of the first.
+     * @param node the node the error is about
+     * @param description what is wrong
+     * @return the error, or null when the maximum was already reached
+     */
+    public SemanticError replace(ASTNode node, String description)
+    {
+        int last = errors.size() - 1;
+        if (last >= 0 && errors.get(last).node == node)
+        {
+            SemanticError error = new SemanticError(description, node);
+            errors.set(last, error);
+            return error;
+        }
+        return add(node, description);
+    }
+
+    /**
+     * Adds errors after all errors found so far, as far as the maximum allows
+     * @param other the errors that were collected for a later part of the tree
+     */
+    public void addAll(ErrorCollector other)
+    {
+        for (SemanticError error : other.errors)
+        {
+            if (add(error, errors.size()) == null)
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return true when the maximum number of errors is reached, so checking can stop
+     */
+    public boolean isFull()
+    {
+        return maxErrors > 0 && errors.size() >= maxErrors;
+    }
+
+    public boolean isEmpty()
+    {
+        return errors.isEmpty();
+    }
+
+    public ArrayList<SemanticError> getErrors()
+    {
+        return errors;
+    }
+}
@@ -1,11 +1,28 @@
 package nl.han.ica.icss.checker;
 
+import nl.han.ica.icss.ast.ASTNode;
+
 public class SemanticError {
 	public String description;
 
+	//The node the error is about and where it starts in the source, see ASTNode.getLine
+	public ASTNode node;
+	public int line;
+	public int column;
+
 	public SemanticError(String description) {
 		this.description = description;
 	}
+	public SemanticError(String description, ASTNode node) {
+		this(description, node, node.getLine(), node.getColumn());
+	}
+	//For a shared literal, which has no position of its own, see ASTNode.getChildLine
+	public SemanticError(String description, ASTNode node, int line, int column) {
+		this(description);
+		this.node = node;
+		this.line = line;
+		this.column = column;
+	}
 	public String toString() {
 		return "ERROR: " + description;
 	}
@@ -0,0 +1,503 @@
+package nl.han.ica.icss.compiler;
+
+import nl.han.ica.datastructures.HANSymbolTable;
+import nl.han.ica.icss.ast.FlatAST;
+import nl.han.ica.icss.ast.types.ExpressionType;
+import nl.han.ica.icss.checker.ErrorCollector;
+import nl.han.ica.icss.checker.SemanticError;
+import nl.han.ica.icss.generator.Generator;
+
+import java.util.ArrayList;
+
+import static nl.han.ica.icss.ast.FlatAST.*;
+
+/**
+ * Checks, evaluates and generates a FlatAST in one traversal, like FusedCompiler does for an AST. Nodes are
+ * ints, so the walk follows the child and sibling arrays and no node objects are read or created. Values are
+ * a literal kind and an int (the number, 1 or 0 for a bool, the string index for a color), so evaluating
+ * allocates nothing either, apart from the boxed values of the variables.
+ *
+ * The errors and the CSS are the same as FusedCompiler gives for the AST the FlatAST was made from. There
+ * are no nodes to point to, so the errors have no node, only the line and column of the node, see FlatAST.
+ */
+public class FlatCompiler
+{
+    private final Generator generator;
+    private final int maxErrors;
+
+    private FlatAST ast;
+    private HANSymbolTable<ExpressionType> variableTypes;
+
+    // The kind of the value in the high half and the value in the low half, see pack
+    private HANSymbolTable<Long> variableValues;
+    private ErrorCollector errors;
+
+    // The value of the expression that was checked last, valueKind is NONE when there is no value
+    private int valueKind;
+    private int value;
+
+    // Else clauses are not checked by Checker, only evaluated, so their errors are not reported
+    private boolean checking;
+
+    public FlatCompiler()
+    {
+        this(false);
+    }
+
+    public FlatCompiler(boolean minify)
+    {
+        this(minify, 0);
+    }
+
+    /**
+     * @param minify leave out all optional whitespace, see Generator
+     * @param maxErrors stop after this many errors, 0 to find all errors
+     */
+    public FlatCompiler(boolean minify, int maxErrors)
+    {
+        generator = new Generator(minify);
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Checks, evaluates and generates the tree
+     * @param ast the parsed (not transformed) tree
+     * @return the generated CSS, or null when the tree has errors, see getErrors
+     */
+    public String compile(FlatAST ast)
+    {
+        this.ast = ast;
+        variableTypes = new HANSymbolTable<>(ast.getStringCount());
+        variableValues = new HANSymbolTable<>(ast.getStringCount());
+        errors = new ErrorCollector(maxErrors);
+        checking = true;
+
+        // Root should always be stylesheet
+        if (ast.size() == 0 || ast.getKind(0) != STYLESHEET)
+        {
+            throw new RuntimeException("First object in AST must be of type 'Stylesheet'");
+        }
+
+        StringBuilder output = new StringBuilder();
+        compileStylesheet(0, output);
+
+        return errors.isEmpty() ? output.toString() : null;
+    }
+
+    /**
+     * Returns the errors of the last compile
+     * @return the errors in the order of the nodes in the tree
+     */
+    public ArrayList<SemanticError> getErrors()
+    {
+        return errors.getErrors();
+    }
+
+    private void compileStylesheet(int stylesheet, StringBuilder output)
+    {
+        variableTypes.openScope();
+        variableValues.openScope();
+
+        for (int child = ast.getFirstChild(stylesheet); child != NONE; child = ast.getNextSibling(child))
+        {
+            // Nothing is generated after an error, so stop when no more errors are wanted
+            if (errors.isFull())
+            {
+                break;
+            }
+
+            switch (ast.getKind(child))
+            {
+                case VARIABLE_ASSIGNMENT:
+                    compileVariableAssignment(child, true);
+                    break;
+                case STYLERULE:
+                    compileStylerule(child, output);
+                    break;
+                default:
+                    error(child, "Stylesheet can only contain variable assignments and style rules on root level");
+            }
+        }
+
+        variableTypes.closeScope();
+        variableValues.closeScope();
+    }
+
+    // Puts the type of the variable, and its value when evaluate is true, see FusedCompiler
+    private void compileVariableAssignment(int variableAssignment, boolean evaluate)
+    {
+        ExpressionType type = compileExpression(ast.getFirstChild(variableAssignment));
+        int id = ast.getValue(variableAssignment);
+        variableTypes.put(id, type);
+        if (evaluate)
+        {
+            variableValues.put(id, valueKind == NONE ? null : pack(valueKind, value));
+        }
+    }
+
+    private void compileStylerule(int stylerule, StringBuilder output)
+    {
+        int start = output.length();
+
+        // The selectors come first, the body starts at the first other child
+        int child = ast.getFirstChild(stylerule);
+        for (int i = 0; child != NONE && isSelector(ast.getKind(child)); i++, child = ast.getNextSibling(child))
+        {
+            generator.generateSelector(output, i, ast.getString(child));
+        }
+        generator.openStylerule(output);
+
+        // Only the Evaluator opens a scope per rule, the Checker keeps the variables of a rule after it
+        variableValues.openScope();
+        int declarations = compileStyleruleBody(child, output);
+        variableValues.closeScope();
+
+        generator.endStylerule(output, start, declarations);
+    }
+
+    private static boolean isSelector(int kind)
+    {
+        return kind == TAG_SELECTOR || kind == CLASS_SELECTOR || kind == ID_SELECTOR;
+    }
+
+    /*
+     Compiles the body of a rule, or the evaluated body of an else clause, from node first on. The output
+     of an if clause goes where the if clause is. Returns the number of declarations that were generated.
+     */
+    private int compileStyleruleBody(int first, StringBuilder output)
+    {
+        int declarations = 0;
+
+        for (int child = first; child != NONE; child = ast.getNextSibling(child))
+        {
+            // Nothing is generated after an error, so stop when no more errors are wanted
+            if (errors.isFull())
+            {
+                break;
+            }
+
+            switch (ast.getKind(child))
+            {
+                case DECLARATION:
+                    declarations += compileDeclaration(child, output);
+                    break;
+                case IF_CLAUSE:
+                    declarations += compileIfClause(child, output);
+                    break;
+                case VARIABLE_ASSIGNMENT:
+                    compileVariableAssignment(child, true);
+                    break;
+                case STYLERULE:
+                    error(child, "Nesting of style rules is not supported");
+                    break;
+                default:
+                    error(child, "Style rule can only contain declarations, if clauses and variable assignments");
+            }
+        }
+
+        return declarations;
+    }
+
+    private int compileDeclaration(int declaration, StringBuilder output)
+    {
+        int mark = errors.mark();
+        ExpressionType expressionType = compileExpression(ast.getFirstChild(declaration));
+        String property = ast.getString(declaration);
+
+        // CH04: Make sure that the expression type matches the property name.
+        if (expressionType != ExpressionType.UNDEFINED)
+        {
+            switch (property)
+            {
+                case "background-color":
+                    if (expressionType != ExpressionType.COLOR)
+                    {
+                        error(declaration, "Only color expressions are allowed for background-color", mark);
+                    }
+                    break;
+                case "width":
+                    if (expressionType != ExpressionType.PIXEL && expressionType != ExpressionType.PERCENTAGE)
+                    {
+                        error(declaration, "Only pixel and percentage expressions are allowed for width", mark);
+                    }
+                    break;
+                case "color":
+                    if (expressionType != ExpressionType.COLOR)
+                    {
+                        error(declaration, "Only color expressions are allowed for color", mark);
+                    }
+                    break;
+                case "height":
+                    if (expressionType != ExpressionType.PIXEL)
+                    {
+                        error(declaration, "Only pixel expressions are allowed for height", mark);
+                    }
+                    break;
+                default:
+                    error(declaration, "Unknown property name, only background-color, width, color and height are allowed", mark);
+            }
+        }
+
+        if (output == null)
+        {
+            return 0;
+        }
+
+        switch (valueKind)
+        {
+            case COLOR_LITERAL:
+                generator.generateColorDeclaration(output, property, ast.getStringAt(value));
+                break;
+            case PIXEL_LITERAL:
+                generator.generatePixelDeclaration(output, property, value);
+                break;
+            case PERCENTAGE_LITERAL:
+                generator.generatePercentageDeclaration(output, property, value);
+                break;
+            default:
+                // Like the Generator, only the property is written for other values
+                generator.generateDeclaration(output, property, null);
+        }
+        return 1;
+    }
+
+    // Checks the if clause and, when output is not null, evaluates and generates it, see FusedCompiler
+    private int compileIfClause(int ifClause, StringBuilder output)
+    {
+        variableTypes.openScope();
+
+        // CH05: If clause can only have boolean variable references or boolean literals
+        int conditionalExpression = ast.getFirstChild(ifClause);
+        boolean condition = false;
+        if (conditionalExpression != NONE && ast.getKind(conditionalExpression) == VARIABLE_REFERENCE)
+        {
+            int mark = errors.mark();
+            if (compileVariableReference(conditionalExpression) != ExpressionType.BOOL)
+            {
+                // A node holds one error, so an undefined variable gets this error instead
+                replaceError(conditionalExpression, "The if clause can only be of type boolean", mark);
+            }
+            condition = valueKind == BOOL_LITERAL && value != 0;
+        }
+        else if (conditionalExpression != NONE && ast.getKind(conditionalExpression) == BOOL_LITERAL)
+        {
+            condition = ast.getValue(conditionalExpression) != 0;
+        }
+        else
+        {
+            // Like FusedCompiler the error goes to the condition, its position is that of this use when it is a literal
+            error(conditionalExpression == NONE ? ifClause : conditionalExpression, "The if clause can only be of type boolean");
+        }
+
+        // The body is always checked, but only evaluated and generated when the condition holds
+        int elseClause = NONE;
+        int declarations = 0;
+        int first = conditionalExpression == NONE ? NONE : ast.getNextSibling(conditionalExpression);
+        for (int child = first; child != NONE; child = ast.getNextSibling(child))
+        {
+            switch (ast.getKind(child))
+            {
+                case VARIABLE_ASSIGNMENT:
+                    compileVariableAssignment(child, condition && output != null);
+                    break;
+                case DECLARATION:
+                    declarations += compileDeclaration(child, condition ? output : null);
+                    break;
+                case IF_CLAUSE:
+                    declarations += compileIfClause(child, condition ? output : null);
+                    break;
+                case ELSE_CLAUSE:
+                    // The else clause is the last child, it is not part of the body
+                    elseClause = child;
+                    break;
+                default:
+                    error(child, "If clause can only contain boolean expressions, variable assignments, declarations, if- and else clauses");
+            }
+        }
+        variableTypes.closeScope();
+
+        if (condition || elseClause == NONE || output == null)
+        {
+            return declarations;
+        }
+
+        // The else clause is only evaluated, like in the Evaluator, its types go in a scope that is thrown away
+        boolean wasChecking = checking;
+        checking = false;
+        variableTypes.openScope();
+        declarations = compileStyleruleBody(ast.getFirstChild(elseClause), output);
+        variableTypes.closeScope();
+        checking = wasChecking;
+
+        return declarations;
+    }
+
+    // Returns the type of the expression, its value is left in valueKind and value.
+    private ExpressionType compileExpression(int expression)
+    {
+        valueKind = NONE;
+        if (expression == NONE)
+        {
+            error(NONE, "Unknown expression type");
+            return ExpressionType.UNDEFINED;
+        }
+
+        int kind = ast.getKind(expression);
+        switch (kind)
+        {
+            case VARIABLE_REFERENCE:
+                return compileVariableReference(expression);
+            case ADD_OPERATION:
+            case SUBTRACT_OPERATION:
+            case MULTIPLY_OPERATION:
+                return compileOperation(expression);
+        }
+
+        valueKind = kind;
+        value = ast.getValue(expression);
+        switch (kind)
+        {
+            case COLOR_LITERAL:
+                return ExpressionType.COLOR;
+            case PIXEL_LITERAL:
+                return ExpressionType.PIXEL;
+            case PERCENTAGE_LITERAL:
+                return ExpressionType.PERCENTAGE;
+            case SCALAR_LITERAL:
+                return ExpressionType.SCALAR;
+            case BOOL_LITERAL:
+                return ExpressionType.BOOL;
+            default:
+                valueKind = NONE;
+                error(expression, "Unknown expression type");
+                return ExpressionType.UNDEFINED;
+        }
+    }
+
+    private ExpressionType compileVariableReference(int variableReference)
+    {
+        // The value is looked up on its own, like in FusedCompiler
+        int id = ast.getValue(variableReference);
+        Long packed = variableValues.get(id);
+        valueKind = packed == null ? NONE : (int) (packed >> 32);
+        value = packed == null ? 0 : (int) (long) packed;
+        ExpressionType type = variableTypes.get(id);
+        if (type != null)
+        {
+            return type;
+        }
+
+        // CH01: Variable is not defined.
+        // CH06: Variable can't be used outside of scope.
+        error(variableReference, String.format("Variable '%s' is not defined in current scope.", ast.getString(variableReference)));
+        return ExpressionType.UNDEFINED;
+    }
+
+    private ExpressionType compileOperation(int operation)
+    {
+        int mark = errors.mark();
+        int lhs = ast.getFirstChild(operation);
+        int rhs = lhs == NONE ? NONE : ast.getNextSibling(lhs);
+        valueKind = NONE;
+
+        // CH03: Operations can't contain color or boolean literals.
+        for (int child : new int[] { lhs, rhs })
+        {
+            int kind = child == NONE ? NONE : ast.getKind(child);
+            if (kind == COLOR_LITERAL)
+            {
+                error(child, "Color literals are not allowed in operations");
+                return ExpressionType.UNDEFINED;
+            }
+            else if (kind == BOOL_LITERAL)
+            {
+                error(child, "Boolean literals are not allowed in operations");
+                return ExpressionType.UNDEFINED;
+            }
+        }
+
+        ExpressionType leftType = compileExpression(lhs);
+        int leftKind = valueKind;
+        int left = value;
+        ExpressionType rightType = compileExpression(rhs);
+        int rightKind = valueKind;
+        int right = value;
+
+        // TR01: The same arithmetic as the Evaluator, no value when the operands do not fit
+        valueKind = NONE;
+        if (ast.getKind(operation) == MULTIPLY_OPERATION)
+        {
+            if (rightKind == SCALAR_LITERAL && isNumber(leftKind))
+            {
+                valueKind = leftKind;
+                value = left * right;
+            }
+
+            // CH02: Multiply operation can only be used with a scalar and a non-scalar expression or scalar and scalar.
+            if (leftType != ExpressionType.SCALAR && rightType != ExpressionType.SCALAR)
+            {
+                error(operation, "Multiply operation can only be used with a scalar and a non-scalar expression or scalar and scalar", mark);
+                return ExpressionType.UNDEFINED;
+            }
+            return leftType == ExpressionType.SCALAR ? rightType : leftType;
+        }
+
+        boolean add = ast.getKind(operation) == ADD_OPERATION;
+        if (leftKind == rightKind && isNumber(leftKind))
+        {
+            valueKind = leftKind;
+            value = add ? left + right : left - right;
+        }
+
+        // CH02: Add and subtract operations can only be used with expressions of the same type.
+        if (leftType != rightType)
+        {
+            error(operation, add ? "Add operation can only be used with expressions of the same type"
+                    : "Subtract operation can only be used with expressions of the same type", mark);
+            return ExpressionType.UNDEFINED;
+        }
+        return leftType;
+    }
+
+    private static boolean isNumber(int kind)
+    {
+        return kind == PIXEL_LITERAL || kind == PERCENTAGE_LITERAL || kind == SCALAR_LITERAL;
+    }
+
+    private static long pack(int kind, int value)
+    {
+        return ((long) kind << 32) | (value & 0xFFFFFFFFL);
+    }
+
+    private void error(int node, String description)
+    {
+        error(node, description, errors.mark());
+    }
+
+    // See ErrorCollector for the mark
+    private void error(int node, String description, int mark)
+    {
+        if (checking)
+        {
+            errors.add(semanticError(node, description), mark);
+        }
+    }
+
+    private void replaceError(int node, String description, int mark)
+    {
+        if (checking)
+        {
+            errors.replace(semanticError(node, description), mark);
+        }
+    }
+
+    // There is no ASTNode, only the position of the node, NONE has no position
+    private SemanticError semanticError(int node, String description)
+    {
+        if (node == NONE)
+        {
+            return new SemanticError(description);
+        }
+        return new SemanticError(description, null, ast.getLine(node), ast.getColumn(node));
+    }
+}
@@ -0,0 +1,554 @@
+package nl.han.ica.icss.compiler;
+
+import nl.han.ica.datastructures.HANSymbolTable;
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.types.ExpressionType;
+import nl.han.ica.icss.checker.ErrorCollector;
+import nl.han.ica.icss.checker.SemanticError;
+import nl.han.ica.icss.generator.Generator;
+
+import java.util.ArrayList;
+
+/**
+ * Compiles a parsed AST to CSS in one traversal. Every node is type checked (like Checker), evaluated
+ * (like Evaluator) and generated (like Generator) on the way. The types and the values of the variables are
+ * in two symbol tables, with the scopes of their own stage: Checker opens a scope per if and else clause,
+ * Evaluator one per style rule. The AST itself is not changed.
+ *
+ * The errors are exactly the errors that Checker reports, in the order AST.getErrors returns them, and
+ * the CSS is exactly what Evaluator and Generator produce. Use it when the intermediate ASTs are not needed.
+ */
+public class FusedCompiler
+{
+    private final Generator generator;
+
+    private HANSymbolTable<ExpressionType> variableTypes;
+    private HANSymbolTable<Literal> variableValues;
+    private VariableNames variableNames;
+    private final int maxErrors;
+    private ErrorCollector errors;
+
+    // The value of the expression that was checked last, so checking does not have to return a pair
+    private Literal value;
+
+    // Else clauses are not checked by Checker, only evaluated, so their errors are not reported
+    private boolean checking;
+
+    public FusedCompiler()
+    {
+        this(false);
+    }
+
+    public FusedCompiler(boolean minify)
+    {
+        this(minify, 0);
+    }
+
+    /**
+     * @param minify leave out all optional whitespace, see Generator
+     * @param maxErrors stop after this many errors, 0 to find all errors
+     */
+    public FusedCompiler(boolean minify, int maxErrors)
+    {
+        generator = new Generator(minify);
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Checks, evaluates and generates the AST
+     * @param ast the parsed (not transformed) AST
+     * @return the generated CSS, or null when the AST has errors, see getErrors
+     */
+    public String compile(AST ast)
+    {
+        variableNames = ast.variableNames;
+        variableTypes = new HANSymbolTable<>(variableNames.size());
+        variableValues = new HANSymbolTable<>(variableNames.size());
+        errors = new ErrorCollector(maxErrors);
+        checking = true;
+
+        // Root should always be stylesheet
+        if (!(ast.root instanceof Stylesheet))
+        {
+            throw new RuntimeException("First object in AST must be of type 'Stylesheet'");
+        }
+
+        StringBuilder output = new StringBuilder();
+        compileStylesheet(ast.root, output);
+
+        return errors.isEmpty() ? output.toString() : null;
+    }
+
+    /**
+     * Returns the errors of the last compile
+     * @return the errors in the order of the nodes in the AST
+     */
+    public ArrayList<SemanticError> getErrors()
+    {
+        return errors.getErrors();
+    }
+
+    private void compileStylesheet(Stylesheet stylesheet, StringBuilder output)
+    {
+        variableTypes.openScope();
+        variableValues.openScope();
+
+        for (ASTNode child : stylesheet.body)
+        {
+            // Nothing is generated after an error, so stop when no more errors are wanted
+            if (errors.isFull())
+            {
+                break;
+            }
+
+            if (child instanceof VariableAssignment)
+            {
+                compileVariableAssignment((VariableAssignment) child, true);
+            }
+            else if (child instanceof Stylerule)
+            {
+                compileStylerule((Stylerule) child, output);
+            }
+            else
+            {
+                error(child, "Stylesheet can only contain variable assignments and style rules on root level");
+            }
+        }
+
+        variableTypes.closeScope();
+        variableValues.closeScope();
+    }
+
+    /*
+     Puts the type of the variable, and its value when evaluate is true. Only the Evaluator skips the bodies
+     of if clauses whose condition does not hold.
+     */
+    private void compileVariableAssignment(VariableAssignment variableAssignment, boolean evaluate)
+    {
+        ExpressionType type = compileExpression(variableAssignment.expression);
+        int id = variableNames.getId(variableAssignment.name);
+        variableTypes.put(id, type);
+        if (evaluate)
+        {
+            variableValues.put(id, value);
+        }
+    }
+
+    private void compileStylerule(Stylerule stylerule, StringBuilder output)
+    {
+        int start = output.length();
+        generator.startStylerule(output, stylerule.selectors);
+
+        // Only the Evaluator opens a scope per rule, the Checker keeps the variables of a rule after it
+        variableValues.openScope();
+        int declarations = compileStyleruleBody(stylerule.body, output);
+        variableValues.closeScope();
+
+        generator.endStylerule(output, start, declarations);
+    }
+
+    /*
+     Compiles the body of a rule, or the evaluated body of an else clause. Like the Evaluator, the output
+     of an if clause goes where the if clause is. Returns the number of declarations that were generated.
+     */
+    private int compileStyleruleBody(ArrayList<ASTNode> body, StringBuilder output)
+    {
+        int declarations = 0;
+
+        for (ASTNode child : body)
+        {
+            // Nothing is generated after an error, so stop when no more errors are wanted
+            if (errors.isFull())
+            {
+                break;
+            }
+
+            if (child instanceof Declaration)
+            {
+                declarations += compileDeclaration((Declaration) child, output);
+            }
+            else if (child instanceof IfClause)
+            {
+                declarations += compileIfClause((IfClause) child, output);
+            }
+            else if (child instanceof VariableAssignment)
+            {
+                compileVariableAssignment((VariableAssignment) child, true);
+            }
+            else if (child instanceof Stylerule)
+            {
+                error(child, "Nesting of style rules is not supported");
+            }
+            else
+            {
+                error(child, "Style rule can only contain declarations, if clauses and variable assignments");
+            }
+        }
+
+        return declarations;
+    }
+
+    private int compileDeclaration(Declaration declaration, StringBuilder output)
+    {
+        int mark = errors.mark();
+        ExpressionType expressionType = compileExpression(declaration.expression);
+
+        // CH04: Make sure that the expression type matches the property name.
+        if (expressionType != ExpressionType.UNDEFINED)
+        {
+            switch (declaration.property.name)
+            {
+                case "background-color":
+                    if (expressionType != ExpressionType.COLOR)
+                    {
+                        error(declaration, "Only color expressions are allowed for background-color", mark);
+                    }
+                    break;
+                case "width":
+                    if (expressionType != ExpressionType.PIXEL && expressionType != ExpressionType.PERCENTAGE)
+                    {
+                        error(declaration, "Only pixel and percentage expressions are allowed for width", mark);
+                    }
+                    break;
+                case "color":
+                    if (expressionType != ExpressionType.COLOR)
+                    {
+                        error(declaration, "Only color expressions are allowed for color", mark);
+                    }
+                    break;
+                case "height":
+                    if (expressionType != ExpressionType.PIXEL)
+                    {
+                        error(declaration, "Only pixel expressions are allowed for height", mark);
+                    }
+                    break;
+                default:
+                    error(declaration, "Unknown property name, only background-color, width, color and height are allowed", mark);
+            }
+        }
+
+        if (output == null)
+        {
+            return 0;
+        }
+        generator.generateDeclaration(output, declaration.property.name, value);
+        return 1;
+    }
+
+    /*
+     Checks the if clause and, when output is not null, evaluates and generates it. Like in the Checker, the
+     body of the if clause has a scope for the types. Like in the Evaluator, the variables of the body that
+     is evaluated are put in the scope of the rule.
+     */
+    private int compileIfClause(IfClause ifClause, StringBuilder output)
+    {
+        variableTypes.openScope();
+
+        // CH05: If clause can only have boolean variable references or boolean literals
+        boolean condition = false;
+        if (ifClause.conditionalExpression instanceof VariableReference)
+        {
+            if (compileVariableReference((VariableReference) ifClause.conditionalExpression) != ExpressionType.BOOL)
+            {
+                // A node holds one error, so an undefined variable gets this error instead
+                replaceError(ifClause.conditionalExpression, "The if clause can only be of type boolean");
+            }
+            condition = value instanceof BoolLiteral && ((BoolLiteral) value).value;
+        }
+        else if (ifClause.conditionalExpression instanceof BoolLiteral)
+        {
+            condition = ((BoolLiteral) ifClause.conditionalExpression).value;
+        }
+        else if (ifClause.conditionalExpression == null)
+        {
+            error(ifClause, "The if clause can only be of type boolean");
+        }
+        else
+        {
+            literalError(ifClause, 0, "The if clause can only be of type boolean");
+        }
+
+        // The body is always checked, but only evaluated and generated when the condition holds
+        int declarations = compileIfClauseBody(ifClause.body, condition ? output : null);
+        variableTypes.closeScope();
+
+        if (condition || ifClause.elseClause == null || output == null)
+        {
+            return declarations;
+        }
+
+        // The else clause is only evaluated, like in the Evaluator. Its types are never seen by the Checker,
+        // so they go in a scope that is thrown away.
+        boolean wasChecking = checking;
+        checking = false;
+        variableTypes.openScope();
+        declarations = compileStyleruleBody(ifClause.elseClause.body, output);
+        variableTypes.closeScope();
+        checking = wasChecking;
+
+        return declarations;
+    }
+
+    private int compileIfClauseBody(ArrayList<ASTNode> body, StringBuilder output)
+    {
+        int declarations = 0;
+
+        for (ASTNode child : body)
+        {
+            if (child instanceof VariableAssignment)
+            {
+                compileVariableAssignment((VariableAssignment) child, output != null);
+            }
+            else if (child instanceof Declaration)
+            {
+                declarations += compileDeclaration((Declaration) child, output);
+            }
+            else if (child instanceof IfClause)
+            {
+                declarations += compileIfClause((IfClause) child, output);
+            }
+            else if (child instanceof ElseClause)
+            {
+                compileElseClause((ElseClause) child);
+            }
+            else
+            {
+                error(child, "If clause can only contain boolean expressions, variable assignments, declarations, if- and else clauses");
+            }
+        }
+
+        return declarations;
+    }
+
+    // Only an else clause inside the body of an if clause gets here, it is checked but never evaluated
+    private void compileElseClause(ElseClause elseClause)
+    {
+        variableTypes.openScope();
+
+        for (ASTNode child : elseClause.body)
+        {
+            if (child instanceof VariableAssignment)
+            {
+                compileVariableAssignment((VariableAssignment) child, false);
+            }
+            else if (child instanceof Declaration)
+            {
+                compileDeclaration((Declaration) child, null);
+            }
+            else if (child instanceof IfClause)
+            {
+                compileIfClause((IfClause) child, null);
+            }
+            else
+            {
+                error(child, "Else clause can only contain variable assignments, declarations and if clauses");
+            }
+        }
+
+        variableTypes.closeScope();
+    }
+
+    // Returns the type of the expression, its value is left in the value field.
+    private ExpressionType compileExpression(Expression expression)
+    {
+        if (expression instanceof VariableReference)
+        {
+            return compileVariableReference((VariableReference) expression);
+        }
+        if (expression instanceof Operation)
+        {
+            return compileOperation((Operation) expression);
+        }
+
+        value = expression instanceof Literal ? (Literal) expression : null;
+        if (expression instanceof ColorLiteral)
+        {
+            return ExpressionType.COLOR;
+        }
+        if (expression instanceof PixelLiteral)
+        {
+            return ExpressionType.PIXEL;
+        }
+        if (expression instanceof PercentageLiteral)
+        {
+            return ExpressionType.PERCENTAGE;
+        }
+        if (expression instanceof ScalarLiteral)
+        {
+            return ExpressionType.SCALAR;
+        }
+        if (expression instanceof BoolLiteral)
+        {
+            return ExpressionType.BOOL;
+        }
+
+        error(expression, "Unknown expression type");
+        return ExpressionType.UNDEFINED;
+    }
+
+    // The value is looked up on its own, a variable can have a type but no value and the other way around
+    private ExpressionType compileVariableReference(VariableReference variableReference)
+    {
+        int id = variableNames.getId(variableReference);
+        value = variableValues.get(id);
+        ExpressionType type = variableTypes.get(id);
+        if (type != null)
+        {
+            return type;
+        }
+
+        // CH01: Variable is not defined.
+        // CH06: Variable can't be used outside of scope.
+        error(variableReference, String.format("Variable '%s' is not defined in current scope.", variableReference.name));
+        return ExpressionType.UNDEFINED;
+    }
+
+    private ExpressionType compileOperation(Operation operation)
+    {
+        int mark = errors.mark();
+        value = null;
+
+        // CH03: Operations can't contain color or boolean literals
+        for (int i = 0; i < operation.getChildCount(); i++)
+        {
+            ASTNode child = operation.getChild(i);
+            if (child instanceof ColorLiteral)
+            {
+                literalError(operation, i, "Color literals are not allowed in operations");
+                return ExpressionType.UNDEFINED;
+            }
+            else if (child instanceof BoolLiteral)
+            {
+                literalError(operation, i, "Boolean literals are not allowed in operations");
+                return ExpressionType.UNDEFINED;
+            }
+        }
+
+        if (!(operation instanceof AddOperation || operation instanceof SubtractOperation || operation instanceof MultiplyOperation))
+        {
+            error(operation, String.format("Operation type '%s' is not supported.", operation.getClass().getName()), mark);
+            return ExpressionType.UNDEFINED;
+        }
+
+        ExpressionType leftType = compileExpression(operation.lhs);
+        Literal left = value;
+        ExpressionType rightType = compileExpression(operation.rhs);
+        Literal right = value;
+
+        if (operation instanceof MultiplyOperation)
+        {
+            value = multiply(left, right);
+
+            // CH02: Multiply operation can only be used with a scalar and a non-scalar expression or scalar and scalar.
+            if (leftType != ExpressionType.SCALAR && rightType != ExpressionType.SCALAR)
+            {
+                error(operation, "Multiply operation can only be used with a scalar and a non-scalar expression or scalar and scalar", mark);
+                return ExpressionType.UNDEFINED;
+            }
+            return leftType == ExpressionType.SCALAR ? rightType : leftType;
+        }
+
+        boolean add = operation instanceof AddOperation;
+        value = add ? add(left, right) : subtract(left, right);
+
+        // CH02: Add and subtract operations can only be used with expressions of the same type.
+        if (leftType != rightType)
+        {
+            error(operation, add ? "Add operation can only be used with expressions of the same type"
+                    : "Subtract operation can only be used with expressions of the same type", mark);
+            return ExpressionType.UNDEFINED;
+        }
+        return leftType;
+    }
+
+    // TR01: The same arithmetic as the Evaluator, null when the operands do not fit
+    private Literal add(Literal left, Literal right)
+    {
+        if (left instanceof PixelLiteral && right instanceof PixelLiteral)
+        {
+            return PixelLiteral.valueOf(((PixelLiteral) left).value + ((PixelLiteral) right).value);
+        }
+        else if (left instanceof PercentageLiteral && right instanceof PercentageLiteral)
+        {
+            return PercentageLiteral.valueOf(((PercentageLiteral) left).value + ((PercentageLiteral) right).value);
+        }
+        else if (left instanceof ScalarLiteral && right instanceof ScalarLiteral)
+        {
+            return ScalarLiteral.valueOf(((ScalarLiteral) left).value + ((ScalarLiteral) right).value);
+        }
+
+        return null;
+    }
+
+    private Literal subtract(Literal left, Literal right)
+    {
+        if (left instanceof PixelLiteral && right instanceof PixelLiteral)
+        {
+            return PixelLiteral.valueOf(((PixelLiteral) left).value - ((PixelLiteral) right).value);
+        }
+        else if (left instanceof PercentageLiteral && right instanceof PercentageLiteral)
+        {
+            return PercentageLiteral.valueOf(((PercentageLiteral) left).value - ((PercentageLiteral) right).value);
+        }
+        else if (left instanceof ScalarLiteral && right instanceof ScalarLiteral)
+        {
+            return ScalarLiteral.valueOf(((ScalarLiteral) left).value - ((ScalarLiteral) right).value);
+        }
+
+        return null;
+    }
+
+    private Literal multiply(Literal left, Literal right)
+    {
+        if (left instanceof PixelLiteral && right instanceof ScalarLiteral)
+        {
+            return PixelLiteral.valueOf(((PixelLiteral) left).value * ((ScalarLiteral) right).value);
+        }
+        else if (left instanceof PercentageLiteral && right instanceof ScalarLiteral)
+        {
+            return PercentageLiteral.valueOf(((PercentageLiteral) left).value * ((ScalarLiteral) right).value);
+        }
+        else if (left instanceof ScalarLiteral && right instanceof ScalarLiteral)
+        {
+            return ScalarLiteral.valueOf(((ScalarLiteral) left).value * ((ScalarLiteral) right).value);
+        }
+
+        return null;
+    }
+
+    private void error(ASTNode node, String description)
+    {
+        error(node, description, errors.mark());
+    }
+
+    // See ErrorCollector for the mark. The AST is not changed, so the nodes do not get the error.
+    private void error(ASTNode node, String description, int mark)
+    {
+        if (checking)
+        {
+            errors.add(node, description, mark);
+        }
+    }
+
+    private void replaceError(ASTNode node, String description)
+    {
+        if (checking)
+        {
+            errors.replace(node, description);
+        }
+    }
+
+    // A literal has no position of its own when it is shared, its parent knows where this use of it starts
+    private void literalError(ASTNode parent, int index, String description)
+    {
+        if (checking)
+        {
+            errors.add(new SemanticError(description, parent.getChild(index), parent.getChildLine(index),
+                    parent.getChildColumn(index)), errors.mark());
+        }
+    }
+}
@@ -5,16 +5,241 @@ import nl.han.ica.icss.ast.*;
 import nl.han.ica.icss.ast.literals.ColorLiteral;
 import nl.han.ica.icss.ast.literals.PercentageLiteral;
 import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.ast.selectors.IdSelector;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 public class Generator
 {
+    // The streaming output is written in chunks of about this many characters
+    private static final int FLUSH_THRESHOLD = 8 * 1024;
+
+    // In parallel mode, the number of rules one task generates into a buffer of its own
+    private static final int RULES_PER_CHUNK = 256;
+
+    // Constant parts of the pretty printed output
+    private static final String SELECTOR_SEPARATOR = ",\n";
+    private static final String RULE_OPEN = " {\n";
+    private static final String RULE_CLOSE = "}\n\n";
+    private static final String INDENT = "  ";
+    private static final String PROPERTY_SEPARATOR = ": ";
+    private static final String DECLARATION_END = ";\n";
+    private static final String PIXEL_DECLARATION_END = "px;\n";
+    private static final String PERCENTAGE_DECLARATION_END = "%;\n";
+
+    // Leaves out all optional whitespace, see endStylerule
+    private final boolean minify;
+
+    // Generates chunks of rules in parallel, see generateChunks
+    private final boolean parallel;
+
+    // The fragments of the chosen output mode
+    private final String selectorSeparator;
+    private final String ruleOpen;
+    private final String indent;
+    private final String propertySeparator;
+    private final String declarationEnd;
+    private final String pixelDeclarationEnd;
+    private final String percentageDeclarationEnd;
+
+    public Generator()
+    {
+        this(false);
+    }
+
+    public Generator(boolean minify)
+    {
+        this(minify, false);
+    }
+
+    /**
+     * @param minify leave out all optional whitespace
+     * @param parallel generate chunks of rules in parallel, the CSS is the same
+     */
+    public Generator(boolean minify, boolean parallel)
+    {
+        this.minify = minify;
+        this.parallel = parallel;
+        selectorSeparator = minify ? "," : SELECTOR_SEPARATOR;
+        ruleOpen = minify ? "{" : RULE_OPEN;
+        indent = minify ? "" : INDENT;
+        propertySeparator = minify ? ":" : PROPERTY_SEPARATOR;
+        declarationEnd = minify ? ";" : DECLARATION_END;
+        pixelDeclarationEnd = minify ? "px;" : PIXEL_DECLARATION_END;
+        percentageDeclarationEnd = minify ? "%;" : PERCENTAGE_DECLARATION_END;
+    }
 
     // GE01: Generate CSS from AST
     public String generate(AST ast)
+    {
+        Stylesheet stylesheet = getStylesheet(ast);
+        if (!parallel)
+        {
+            return generateStylesheet(stylesheet);
+        }
+
+        // Concatenate the chunks in order, into a builder that is large enough for all of them
+        StringBuilder[] chunks = generateChunks(stylesheet.body, 0, chunkCount(stylesheet.body));
+        int length = 0;
+        for (StringBuilder chunk : chunks)
+        {
+            length += chunk.length();
+        }
+        StringBuilder output = new StringBuilder(length);
+        for (StringBuilder chunk : chunks)
+        {
+            output.append(chunk);
+        }
+        return output.toString();
+    }
+
+    /**
+     * Generates the CSS and writes it while generating, rule by rule. Only a bounded buffer is kept
+     * in memory, no matter how large the stylesheet is. The writer is flushed but not closed.
+     * @param ast the transformed AST
+     * @param writer where the CSS is written to
+     */
+    public void generate(AST ast, Writer writer) throws IOException
+    {
+        Stylesheet stylesheet = getStylesheet(ast);
+        if (parallel)
+        {
+            // A wave of chunks at a time, so the memory stays bounded as well
+            int chunks = chunkCount(stylesheet.body);
+            for (int first = 0; first < chunks; first += waveSize())
+            {
+                for (StringBuilder chunk : generateChunks(stylesheet.body, first, Math.min(waveSize(), chunks - first)))
+                {
+                    writer.append(chunk);
+                }
+            }
+            writer.flush();
+            return;
+        }
+
+        StringBuilder output = new StringBuilder(FLUSH_THRESHOLD * 2);
+
+        for (ASTNode child : stylesheet.body)
+        {
+            if (child instanceof Stylerule)
+            {
+                generateStylerule(output, (Stylerule) child);
+            }
+
+            if (output.length() >= FLUSH_THRESHOLD)
+            {
+                writer.append(output);
+                output.setLength(0);
+            }
+        }
+
+        writer.append(output);
+        writer.flush();
+    }
+
+    /**
+     * Generates the CSS as UTF-8 to a channel, see generate(AST, Writer). The channel is not closed.
+     * @param ast the transformed AST
+     * @param channel where the CSS is written to
+     */
+    public void generate(AST ast, WritableByteChannel channel) throws IOException
+    {
+        if (!parallel)
+        {
+            generate(ast, Channels.newWriter(channel, StandardCharsets.UTF_8));
+            return;
+        }
+
+        // The chunks are encoded in parallel as well, and a wave of them is written with one gathering write
+        Stylesheet stylesheet = getStylesheet(ast);
+        int chunks = chunkCount(stylesheet.body);
+        for (int first = 0; first < chunks; first += waveSize())
+        {
+            StringBuilder[] wave = generateChunks(stylesheet.body, first, Math.min(waveSize(), chunks - first));
+            ByteBuffer[] buffers = new ByteBuffer[wave.length];
+            IntStream.range(0, wave.length).parallel()
+                    .forEach(i -> buffers[i] = StandardCharsets.UTF_8.encode(CharBuffer.wrap(wave[i])));
+            write(channel, buffers);
+        }
+    }
+
+    private static void write(WritableByteChannel channel, ByteBuffer[] buffers) throws IOException
+    {
+        if (channel instanceof GatheringByteChannel)
+        {
+            long remaining = 0;
+            for (ByteBuffer buffer : buffers)
+            {
+                remaining += buffer.remaining();
+            }
+            while (remaining > 0)
+            {
+                remaining -= ((GatheringByteChannel) channel).write(buffers);
+            }
+            return;
+        }
+
+        for (ByteBuffer buffer : buffers)
+        {
+            while (buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /*
+     Generates chunks first to first + count - 1 of the body on the fork-join pool, every chunk into a buffer
+     of its own. A rule only depends on itself, so the chunks in order are exactly the sequential output.
+     */
+    private StringBuilder[] generateChunks(List<ASTNode> body, int first, int count)
+    {
+        StringBuilder[] chunks = new StringBuilder[count];
+        IntStream.range(0, count).parallel().forEach(i ->
+        {
+            int start = (first + i) * RULES_PER_CHUNK;
+            int end = Math.min(body.size(), start + RULES_PER_CHUNK);
+            StringBuilder chunk = new StringBuilder();
+            for (int child = start; child < end; child++)
+            {
+                if (body.get(child) instanceof Stylerule)
+                {
+                    generateStylerule(chunk, (Stylerule) body.get(child));
+                }
+            }
+            chunks[i] = chunk;
+        });
+        return chunks;
+    }
+
+    private static int chunkCount(List<ASTNode> body)
+    {
+        return (body.size() + RULES_PER_CHUNK - 1) / RULES_PER_CHUNK;
+    }
+
+    // The number of chunks that are generated before they are written, a few per core
+    private static int waveSize()
+    {
+        return ForkJoinPool.getCommonPoolParallelism() * 4;
+    }
+
+    private Stylesheet getStylesheet(AST ast)
     {
         if (ast.root instanceof Stylesheet)
         {
-            return generateStylesheet(ast.root);
+            return ast.root;
         }
         else
         {
@@ -27,7 +252,7 @@ public class Generator
         // Create the StringBuilder here once, so we only have to do a toString once.
         StringBuilder output = new StringBuilder();
 
-        for (ASTNode child : node.getChildren())
+        for (ASTNode child : node.body)
         {
             if (child instanceof Stylerule)
             {
@@ -40,52 +265,195 @@ public class Generator
 
     private void generateStylerule(StringBuilder output, Stylerule stylerule)
     {
-        // Add all selectors, separated by a comma and a newline
-        boolean addComma = false;
-        for (Selector selector : stylerule.selectors)
+        int start = output.length();
+        startStylerule(output, stylerule.selectors);
+
+        int declarations = 0;
+        for (int i = 0; i < stylerule.body.size(); i++)
         {
-            if (addComma)
+            ASTNode child = stylerule.body.get(i);
+            if (child instanceof Declaration)
             {
-                output.append(",\n");
+                Declaration declaration = (Declaration) child;
+                generateDeclaration(output, declaration.property.name, declaration.expression);
+                declarations++;
             }
-
-            output.append(selector.toString());
-
-            // Only add commas on the second run
-            addComma = true;
         }
 
-        output.append(" {\n");
+        endStylerule(output, start, declarations);
+        // No need to return because the StringBuilder is reference type and the values are already added to the StringBuilder.
+    }
 
-        for (ASTNode child : stylerule.body)
+    /**
+     * Appends the selectors of a rule, separated by a comma (and a newline), and the opening brace
+     * @param output where the CSS is appended to
+     * @param selectors the selectors of the rule
+     */
+    public void startStylerule(StringBuilder output, List<Selector> selectors)
+    {
+        for (int i = 0; i < selectors.size(); i++)
         {
-            if (child instanceof Declaration)
+            // Only add commas from the second selector on
+            if (i > 0)
             {
-                generateDeclaration(output, (Declaration)child);
+                output.append(selectorSeparator);
             }
+
+            appendSelector(output, selectors.get(i));
         }
 
-        // Add two newlines so the next expression will not be directly beneath the current one
-        output.append("}\n\n");
-        // No need to return because the StringBuilder is reference type and the values are already added to the StringBuilder.
+        output.append(ruleOpen);
+    }
+
+    /**
+     * Appends one selector of a rule, for callers that have the text of the selectors instead of the
+     * nodes. Call openStylerule after the last selector.
+     * @param output where the CSS is appended to
+     * @param index the position of the selector in the rule, all but the first get a comma in front
+     * @param selector the text of the selector
+     */
+    public void generateSelector(StringBuilder output, int index, String selector)
+    {
+        if (index > 0)
+        {
+            output.append(selectorSeparator);
+        }
+        output.append(selector);
+    }
+
+    /**
+     * Appends the opening brace after the selectors, see generateSelector
+     * @param output where the CSS is appended to
+     */
+    public void openStylerule(StringBuilder output)
+    {
+        output.append(ruleOpen);
+    }
+
+    /**
+     * Appends one declaration of a rule. Values are appended as int, so no format string has to be
+     * parsed and nothing is boxed.
+     * @param output where the CSS is appended to
+     * @param property the name of the property
+     * @param value the evaluated value, only color, pixel and percentage literals are written
+     */
+    public void generateDeclaration(StringBuilder output, String property, Expression value)
+    {
+        if (value instanceof ColorLiteral)
+        {
+            generateColorDeclaration(output, property, ((ColorLiteral) value).value);
+        }
+        else if (value instanceof PixelLiteral)
+        {
+            generatePixelDeclaration(output, property, ((PixelLiteral) value).value);
+        }
+        else if (value instanceof PercentageLiteral)
+        {
+            generatePercentageDeclaration(output, property, ((PercentageLiteral) value).value);
+        }
+        else
+        {
+            appendProperty(output, property);
+        }
+    }
+
+    /**
+     * Appends a declaration with a color value, see generateDeclaration
+     */
+    public void generateColorDeclaration(StringBuilder output, String property, String color)
+    {
+        appendProperty(output, property);
+        appendColor(output, color);
+        output.append(declarationEnd);
+    }
+
+    /**
+     * Appends a declaration with a pixel value, see generateDeclaration
+     */
+    public void generatePixelDeclaration(StringBuilder output, String property, int pixels)
+    {
+        appendProperty(output, property);
+        output.append(pixels).append(pixelDeclarationEnd);
+    }
+
+    /**
+     * Appends a declaration with a percentage value, see generateDeclaration
+     */
+    public void generatePercentageDeclaration(StringBuilder output, String property, int percentage)
+    {
+        appendProperty(output, property);
+        output.append(percentage).append(percentageDeclarationEnd);
     }
 
-    private void generateDeclaration(StringBuilder output, Declaration declaration)
+    private void appendProperty(StringBuilder output, String property)
     {
         // GE02: Add 2 spaces per scope level.
-        output.append(String.format("  %s: ", declaration.property.name));
+        output.append(indent).append(property).append(propertySeparator);
+    }
+
+    /**
+     * Closes a rule. Minified, the semicolon after the last declaration is left out and a rule without
+     * declarations is removed again.
+     * @param output where the CSS is appended to
+     * @param start the length of output before startStylerule was called
+     * @param declarations the number of declarations that were generated for the rule
+     */
+    public void endStylerule(StringBuilder output, int start, int declarations)
+    {
+        if (!minify)
+        {
+            // Add two newlines so the next expression will not be directly beneath the current one
+            output.append(RULE_CLOSE);
+        }
+        else if (declarations == 0)
+        {
+            output.setLength(start);
+        }
+        else
+        {
+            if (output.charAt(output.length() - 1) == ';')
+            {
+                output.setLength(output.length() - 1);
+            }
+            output.append('}');
+        }
+    }
+
+    // Minified, #aabbcc is shortened to the same color #abc, other colors are appended as they are.
+    private void appendColor(StringBuilder output, String color)
+    {
+        if (minify
+                && color.length() == 7
+                && color.charAt(1) == color.charAt(2)
+                && color.charAt(3) == color.charAt(4)
+                && color.charAt(5) == color.charAt(6))
+        {
+            output.append('#').append(color.charAt(1)).append(color.charAt(3)).append(color.charAt(5));
+        }
+        else
+        {
+            output.append(color);
+        }
+    }
 
-        if (declaration.expression instanceof ColorLiteral)
+    private void appendSelector(StringBuilder output, Selector selector)
+    {
+        // Append the names directly, instead of going through toString for every selector
+        if (selector instanceof TagSelector)
         {
-            output.append(String.format("%s;\n", ((ColorLiteral) declaration.expression).value));
+            output.append(((TagSelector) selector).tag);
         }
-        else if (declaration.expression instanceof PixelLiteral)
+        else if (selector instanceof ClassSelector)
         {
-            output.append(String.format("%spx;\n", ((PixelLiteral) declaration.expression).value));
+            output.append(((ClassSelector) selector).cls);
         }
-        else if (declaration.expression instanceof PercentageLiteral)
+        else if (selector instanceof IdSelector)
         {
-            output.append(String.format("%s%%;\n", ((PercentageLiteral) declaration.expression).value));
+            output.append(((IdSelector) selector).id);
+        }
+        else
+        {
+            output.append(selector.toString());
         }
     }
 }
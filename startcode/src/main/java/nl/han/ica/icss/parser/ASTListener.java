@@ -3,7 +3,7 @@ package nl.han.ica.icss.parser;
 import java.util.Stack;
 
 
-import nl.han.ica.datastructures.HANStack;
+import nl.han.ica.datastructures.HANArrayStack;
 import nl.han.ica.datastructures.IHANStack;
 import nl.han.ica.icss.ast.*;
 import nl.han.ica.icss.ast.literals.*;
@@ -30,9 +30,17 @@ public class ASTListener extends ICSSBaseListener
     private final IHANStack<ASTNode> currentContainer;
 
     public ASTListener()
+    {
+        this(new HANArrayStack<>());
+    }
+
+    /**
+     * @param currentContainer the (empty) stack for the parent nodes, e.g. a HANStack instead of the array based default
+     */
+    public ASTListener(IHANStack<ASTNode> currentContainer)
     {
         ast = new AST();
-        currentContainer = new HANStack<>();
+        this.currentContainer = currentContainer;
     }
 
     public AST getAST()
@@ -44,7 +52,7 @@ public class ASTListener extends ICSSBaseListener
     public void enterStylesheet(ICSSParser.StylesheetContext ctx)
     {
         ASTNode stylesheet = new Stylesheet();
-        currentContainer.push(stylesheet);
+        push(stylesheet, ctx);
     }
 
     @Override
@@ -57,7 +65,7 @@ public class ASTListener extends ICSSBaseListener
     @Override
     public void enterStylerule(ICSSParser.StyleruleContext ctx)
     {
-        currentContainer.push(new Stylerule());
+        push(new Stylerule(), ctx);
     }
 
     @Override
@@ -71,7 +79,7 @@ public class ASTListener extends ICSSBaseListener
     public void enterClassSelector(ICSSParser.ClassSelectorContext ctx)
     {
         ClassSelector classSelector = new ClassSelector(ctx.getText());
-        currentContainer.push(classSelector);
+        push(classSelector, ctx);
     }
 
     @Override
@@ -85,7 +93,7 @@ public class ASTListener extends ICSSBaseListener
     public void enterIdSelector(ICSSParser.IdSelectorContext ctx)
     {
         IdSelector idSelector = new IdSelector(ctx.getText());
-        currentContainer.push(idSelector);
+        push(idSelector, ctx);
     }
 
     @Override
@@ -99,7 +107,7 @@ public class ASTListener extends ICSSBaseListener
     public void enterTagSelector(ICSSParser.TagSelectorContext ctx)
     {
         TagSelector tagSelector = new TagSelector(ctx.getText());
-        currentContainer.push(tagSelector);
+        push(tagSelector, ctx);
     }
 
     @Override
@@ -113,7 +121,7 @@ public class ASTListener extends ICSSBaseListener
     public void enterPropertyName(ICSSParser.PropertyNameContext ctx)
     {
         PropertyName propertyName = new PropertyName(ctx.getText());
-        currentContainer.push(propertyName);
+        push(propertyName, ctx);
     }
 
     @Override
@@ -126,7 +134,7 @@ public class ASTListener extends ICSSBaseListener
     @Override
     public void enterDeclaration(ICSSParser.DeclarationContext ctx)
     {
-        currentContainer.push(new Declaration());
+        push(new Declaration(), ctx);
     }
 
     @Override
@@ -139,77 +147,77 @@ public class ASTListener extends ICSSBaseListener
     @Override
     public void enterColorLiteral(ICSSParser.ColorLiteralContext ctx)
     {
-        ColorLiteral colorLiteral = new ColorLiteral(ctx.getText());
-        currentContainer.push(colorLiteral);
+        ColorLiteral colorLiteral = ColorLiteral.valueOf(ctx.getText());
+        push(colorLiteral, ctx);
     }
 
     @Override
     public void exitColorLiteral(ICSSParser.ColorLiteralContext ctx)
     {
         ColorLiteral colorLiteral = (ColorLiteral) currentContainer.pop();
-        currentContainer.peek().addChild(colorLiteral);
+        addLiteral(colorLiteral, ctx);
     }
 
     @Override
     public void enterPixelLiteral(ICSSParser.PixelLiteralContext ctx)
     {
-        PixelLiteral pixelLiteral = new PixelLiteral(ctx.getText());
-        currentContainer.push(pixelLiteral);
+        PixelLiteral pixelLiteral = PixelLiteral.valueOf(ctx.getText());
+        push(pixelLiteral, ctx);
     }
 
     @Override
     public void exitPixelLiteral(ICSSParser.PixelLiteralContext ctx)
     {
         PixelLiteral pixelLiteral = (PixelLiteral) currentContainer.pop();
-        currentContainer.peek().addChild(pixelLiteral);
+        addLiteral(pixelLiteral, ctx);
     }
 
     @Override
     public void enterPercentageLiteral(ICSSParser.PercentageLiteralContext ctx)
     {
-        PercentageLiteral percentageLiteral = new PercentageLiteral(ctx.getText());
-        currentContainer.push(percentageLiteral);
+        PercentageLiteral percentageLiteral = PercentageLiteral.valueOf(ctx.getText());
+        push(percentageLiteral, ctx);
     }
 
     @Override
     public void exitPercentageLiteral(ICSSParser.PercentageLiteralContext ctx)
     {
         PercentageLiteral percentageLiteral = (PercentageLiteral) currentContainer.pop();
-        currentContainer.peek().addChild(percentageLiteral);
+        addLiteral(percentageLiteral, ctx);
     }
 
     @Override
     public void enterScalarLiteral(ICSSParser.ScalarLiteralContext ctx)
     {
-        ScalarLiteral scalarLiteral = new ScalarLiteral(ctx.getText());
-        currentContainer.push(scalarLiteral);
+        ScalarLiteral scalarLiteral = ScalarLiteral.valueOf(ctx.getText());
+        push(scalarLiteral, ctx);
     }
 
     @Override
     public void exitScalarLiteral(ICSSParser.ScalarLiteralContext ctx)
     {
         ScalarLiteral scalarLiteral = (ScalarLiteral) currentContainer.pop();
-        currentContainer.peek().addChild(scalarLiteral);
+        addLiteral(scalarLiteral, ctx);
     }
 
     @Override
     public void enterBoolLiteral(ICSSParser.BoolLiteralContext ctx)
     {
-        BoolLiteral boolLiteral = new BoolLiteral(ctx.getText());
-        currentContainer.push(boolLiteral);
+        BoolLiteral boolLiteral = BoolLiteral.valueOf(ctx.getText());
+        push(boolLiteral, ctx);
     }
 
     @Override
     public void exitBoolLiteral(ICSSParser.BoolLiteralContext ctx)
     {
         BoolLiteral boolLiteral = (BoolLiteral) currentContainer.pop();
-        currentContainer.peek().addChild(boolLiteral);
+        addLiteral(boolLiteral, ctx);
     }
 
     @Override
     public void enterVariableAssignment(ICSSParser.VariableAssignmentContext ctx)
     {
-        currentContainer.push(new VariableAssignment());
+        push(new VariableAssignment(), ctx);
     }
 
     @Override
@@ -222,8 +230,9 @@ public class ASTListener extends ICSSBaseListener
     @Override
     public void enterVariableReference(ICSSParser.VariableReferenceContext ctx)
     {
-        VariableReference variableReference = new VariableReference(ctx.getText());
-        currentContainer.push(variableReference);
+        String name = ctx.getText();
+        VariableReference variableReference = new VariableReference(name, ast.variableNames.intern(name));
+        push(variableReference, ctx);
     }
 
     @Override
@@ -236,7 +245,7 @@ public class ASTListener extends ICSSBaseListener
     @Override
     public void enterIfClause(ICSSParser.IfClauseContext ctx)
     {
-        currentContainer.push(new IfClause());
+        push(new IfClause(), ctx);
     }
 
     @Override
@@ -249,7 +258,7 @@ public class ASTListener extends ICSSBaseListener
     @Override
     public void enterElseClause(ICSSParser.ElseClauseContext ctx)
     {
-        currentContainer.push(new ElseClause());
+        push(new ElseClause(), ctx);
     }
 
     @Override
@@ -273,13 +282,13 @@ public class ASTListener extends ICSSBaseListener
         switch(ctx.getChild(1).getText())
         {
             case "+":
-                currentContainer.push(new AddOperation());
+                push(new AddOperation(), ctx);
                 return;
             case "-":
-                currentContainer.push(new SubtractOperation());
+                push(new SubtractOperation(), ctx);
                 return;
             case "*":
-                currentContainer.push(new MultiplyOperation());
+                push(new MultiplyOperation(), ctx);
                 return;
         }
     }
@@ -313,4 +322,23 @@ public class ASTListener extends ICSSBaseListener
     public void visitErrorNode(ErrorNode node)
     {
     }
-}
\ No newline at end of file
+
+    // Pushes a new node, which starts where its context starts. Columns count from 1 like lines do.
+    // A literal gets its position from addLiteral.
+    private void push(ASTNode node, ParserRuleContext ctx)
+    {
+        if (!(node instanceof Literal))
+        {
+            node.setPosition(ctx.getStart().getLine(), ctx.getStart().getCharPositionInLine() + 1);
+        }
+        currentContainer.push(node);
+    }
+
+    // A shared literal has no position, its parent keeps the position of this use, see Literal
+    private void addLiteral(Literal literal, ParserRuleContext ctx)
+    {
+        ASTNode parent = currentContainer.peek();
+        parent.addChild(literal);
+        parent.setChildPosition(parent.getChildCount() - 1, ctx.getStart().getLine(), ctx.getStart().getCharPositionInLine() + 1);
+    }
+}
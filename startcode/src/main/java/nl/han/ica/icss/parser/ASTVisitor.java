@@ -0,0 +1,266 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.ast.selectors.IdSelector;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.util.List;
+
+/**
+ * This class builds the ICSS Abstract Syntax Tree straight from the Antlr parse tree, without a second walk
+ * with a listener and without a stack of parent nodes. Every visit method returns the AST node for its context.
+ *
+ * With parseStatements the stylesheet is parsed one top-level statement at a time, so only the parse tree of
+ * the current statement is kept in memory instead of the parse tree of the whole input.
+ */
+public class ASTVisitor extends ICSSBaseVisitor<ASTNode>
+{
+    // Every variable reference gets the id of its name while it is built
+    private final VariableNames variableNames = new VariableNames();
+
+    public VariableNames getVariableNames()
+    {
+        return variableNames;
+    }
+
+    /**
+     * Parses and builds the top-level statements one by one until the end of the input
+     * @param parser the parser to read the statements from
+     * @return the AST of the whole stylesheet
+     */
+    public AST parseStatements(ICSSParser parser)
+    {
+        Stylesheet stylesheet = new Stylesheet();
+        while (parser.getInputStream().LA(1) != Token.EOF)
+        {
+            addChild(stylesheet, parser.astnode());
+        }
+        return new AST(stylesheet, variableNames);
+    }
+
+    @Override
+    public ASTNode visitStylesheet(ICSSParser.StylesheetContext ctx)
+    {
+        Stylesheet stylesheet = new Stylesheet();
+        addChildren(stylesheet, ctx.astnode());
+        return stylesheet;
+    }
+
+    @Override
+    public ASTNode visitAstnode(ICSSParser.AstnodeContext ctx)
+    {
+        // An astnode is always exactly one statement, unless the parser had to recover from an error
+        return ctx.getChildCount() == 0 ? null : visit(ctx.getChild(0));
+    }
+
+    @Override
+    public ASTNode visitStylerule(ICSSParser.StyleruleContext ctx)
+    {
+        Stylerule stylerule = new Stylerule();
+        addSelectors(stylerule, ctx.selector());
+        addChildren(stylerule, ctx.astnode());
+        return stylerule;
+    }
+
+    // A selector list is nested in the grammar (h2, .link, #link), but flat in the AST.
+    private void addSelectors(Stylerule stylerule, ICSSParser.SelectorContext ctx)
+    {
+        if (ctx == null)
+        {
+            return;
+        }
+
+        addChild(stylerule, ctx.tagSelector());
+        addChild(stylerule, ctx.classSelector());
+        addChild(stylerule, ctx.idSelector());
+        for (ICSSParser.SelectorContext selector : ctx.selector())
+        {
+            addSelectors(stylerule, selector);
+        }
+    }
+
+    @Override
+    public ASTNode visitClassSelector(ICSSParser.ClassSelectorContext ctx)
+    {
+        return new ClassSelector(ctx.getText());
+    }
+
+    @Override
+    public ASTNode visitIdSelector(ICSSParser.IdSelectorContext ctx)
+    {
+        return new IdSelector(ctx.getText());
+    }
+
+    @Override
+    public ASTNode visitTagSelector(ICSSParser.TagSelectorContext ctx)
+    {
+        return new TagSelector(ctx.getText());
+    }
+
+    @Override
+    public ASTNode visitPropertyName(ICSSParser.PropertyNameContext ctx)
+    {
+        return new PropertyName(ctx.getText());
+    }
+
+    @Override
+    public ASTNode visitDeclaration(ICSSParser.DeclarationContext ctx)
+    {
+        Declaration declaration = new Declaration();
+        addChild(declaration, ctx.propertyName());
+        addChild(declaration, ctx.expression());
+        return declaration;
+    }
+
+    @Override
+    public ASTNode visitExpression(ICSSParser.ExpressionContext ctx)
+    {
+        // An expression with exactly 3 children is an operation, otherwise it is a literal or variable reference.
+        if (ctx.getChildCount() != 3)
+        {
+            return ctx.getChildCount() == 0 ? null : visit(ctx.getChild(0));
+        }
+
+        // Get the operation from the middle child, + - * for example
+        Operation operation;
+        switch (ctx.getChild(1).getText())
+        {
+            case "+":
+                operation = new AddOperation();
+                break;
+            case "-":
+                operation = new SubtractOperation();
+                break;
+            case "*":
+                operation = new MultiplyOperation();
+                break;
+            default:
+                return null;
+        }
+
+        addChild(operation, ctx.expression(0));
+        addChild(operation, ctx.expression(1));
+        return operation;
+    }
+
+    @Override
+    public ASTNode visitLiteral(ICSSParser.LiteralContext ctx)
+    {
+        return ctx.getChildCount() == 0 ? null : visit(ctx.getChild(0));
+    }
+
+    @Override
+    public ASTNode visitColorLiteral(ICSSParser.ColorLiteralContext ctx)
+    {
+        return ColorLiteral.valueOf(ctx.getText());
+    }
+
+    @Override
+    public ASTNode visitPixelLiteral(ICSSParser.PixelLiteralContext ctx)
+    {
+        return PixelLiteral.valueOf(ctx.getText());
+    }
+
+    @Override
+    public ASTNode visitPercentageLiteral(ICSSParser.PercentageLiteralContext ctx)
+    {
+        return PercentageLiteral.valueOf(ctx.getText());
+    }
+
+    @Override
+    public ASTNode visitScalarLiteral(ICSSParser.ScalarLiteralContext ctx)
+    {
+        return ScalarLiteral.valueOf(ctx.getText());
+    }
+
+    @Override
+    public ASTNode visitBoolLiteral(ICSSParser.BoolLiteralContext ctx)
+    {
+        return BoolLiteral.valueOf(ctx.getText());
+    }
+
+    @Override
+    public ASTNode visitVariableAssignment(ICSSParser.VariableAssignmentContext ctx)
+    {
+        VariableAssignment variableAssignment = new VariableAssignment();
+        addChild(variableAssignment, ctx.variableReference());
+        addChild(variableAssignment, ctx.expression());
+        return variableAssignment;
+    }
+
+    @Override
+    public ASTNode visitVariableReference(ICSSParser.VariableReferenceContext ctx)
+    {
+        String name = ctx.getText();
+        return new VariableReference(name, variableNames.intern(name));
+    }
+
+    @Override
+    public ASTNode visitIfClause(ICSSParser.IfClauseContext ctx)
+    {
+        IfClause ifClause = new IfClause();
+        addChild(ifClause, ctx.variableReference());
+        addChild(ifClause, ctx.boolLiteral());
+        addChildren(ifClause, ctx.astnode());
+        addChild(ifClause, ctx.elseClause());
+        return ifClause;
+    }
+
+    @Override
+    public ASTNode visitElseClause(ICSSParser.ElseClauseContext ctx)
+    {
+        ElseClause elseClause = new ElseClause();
+        addChildren(elseClause, ctx.astnode());
+        return elseClause;
+    }
+
+    // Contexts can be missing when the parser recovered from a syntax error, those are skipped.
+    private void addChild(ASTNode parent, ParseTree ctx)
+    {
+        if (ctx == null)
+        {
+            return;
+        }
+
+        ASTNode child = visit(ctx);
+        if (child != null)
+        {
+            parent.addChild(child);
+            setPosition(parent, child, ctx);
+        }
+    }
+
+    // The node starts where its context starts, columns count from 1 like lines do.
+    // A shared literal has no position, its parent keeps the position of this use, see Literal.
+    private void setPosition(ASTNode parent, ASTNode node, ParseTree ctx)
+    {
+        if (ctx instanceof ParserRuleContext)
+        {
+            Token start = ((ParserRuleContext) ctx).getStart();
+            if (node instanceof Literal)
+            {
+                parent.setChildPosition(parent.getChildCount() - 1, start.getLine(), start.getCharPositionInLine() + 1);
+            }
+            else
+            {
+                node.setPosition(start.getLine(), start.getCharPositionInLine() + 1);
+            }
+        }
+    }
+
+    private void addChildren(ASTNode parent, List<? extends ParseTree> contexts)
+    {
+        for (ParseTree ctx : contexts)
+        {
+            addChild(parent, ctx);
+        }
+    }
+}
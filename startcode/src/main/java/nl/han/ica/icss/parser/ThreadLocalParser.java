@@ -0,0 +1,71 @@
+package nl.han.ica.icss.parser;
+
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+
+/**
+ * Keeps one lexer, token stream and parser per thread and resets them for every new input, instead of
+ * allocating all three for every parse. The instances never leave their thread, so no locking is needed.
+ *
+ * The ATN and DFA cache of the generated lexer and parser are static, so they are shared by all threads.
+ * See Pipeline.warmUp to fill that cache before the first real input arrives.
+ */
+public class ThreadLocalParser
+{
+    private static final ThreadLocal<ThreadLocalParser> INSTANCES = ThreadLocal.withInitial(ThreadLocalParser::new);
+
+    // Used to release the previous input, so a huge stylesheet is not kept alive by an idle thread
+    private static final CharStream EMPTY = CharStreams.fromString("");
+
+    private final ICSSLexer lexer;
+    private final CommonTokenStream tokens;
+    private final ICSSParser parser;
+
+    private ThreadLocalParser()
+    {
+        lexer = new ICSSLexer(EMPTY);
+        tokens = new CommonTokenStream(lexer);
+        parser = new ICSSParser(tokens);
+    }
+
+    /**
+     * Returns the instances of the current thread
+     * @return the lexer and parser of this thread
+     */
+    public static ThreadLocalParser get()
+    {
+        return INSTANCES.get();
+    }
+
+    /**
+     * Resets the lexer, token stream and parser to read from a new input
+     * @param input the input to parse
+     * @param lexerErrorListener receives the lexer errors, replaces the listener of the previous input
+     * @return the parser, positioned at the start of the input
+     */
+    public ICSSParser reset(CharStream input, ANTLRErrorListener lexerErrorListener)
+    {
+        lexer.setInputStream(input);
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(lexerErrorListener);
+
+        // Setting the token source clears the buffered tokens, setting the token stream resets the parser.
+        tokens.setTokenSource(lexer);
+        parser.setTokenStream(tokens);
+        return parser;
+    }
+
+    /**
+     * Drops the references to the last input and its tokens
+     */
+    public void release()
+    {
+        lexer.setInputStream(EMPTY);
+        lexer.removeErrorListeners();
+        tokens.setTokenSource(lexer);
+        parser.setTokenStream(tokens);
+        parser.removeErrorListeners();
+    }
+}
@@ -1,7 +1,7 @@
 package nl.han.ica.icss.transforms;
 
-import nl.han.ica.datastructures.HANLinkedList;
-import nl.han.ica.datastructures.IHANLinkedList;
+import nl.han.ica.datastructures.HANSymbolTable;
+import nl.han.ica.datastructures.HANVersionedTable;
 import nl.han.ica.icss.ast.*;
 import nl.han.ica.icss.ast.literals.BoolLiteral;
 import nl.han.ica.icss.ast.literals.PercentageLiteral;
@@ -12,93 +12,175 @@ import nl.han.ica.icss.ast.operations.MultiplyOperation;
 import nl.han.ica.icss.ast.operations.SubtractOperation;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.stream.IntStream;
 
 public class Evaluator implements Transform
 {
-    private IHANLinkedList<HashMap<String, Literal>> variableValues;
+    // The number of rules one parallel task evaluates, see Checker
+    private static final int RULES_PER_TASK = 64;
+
+    // The values of the variables by the id of their name, see VariableNames
+    private HANSymbolTable<Literal> variableValues;
+    private VariableNames variableNames;
+    private final boolean parallel;
+
+    // In parallel mode, the values of the global variables at every version and the version of this rule
+    private HANVersionedTable<Literal> globalValues;
+    private int globalVersion;
 
     public Evaluator()
     {
-        variableValues = new HANLinkedList<>();
+        this(false);
+    }
+
+    /**
+     * @param parallel evaluate the style rules in parallel, see evaluateStylesheetParallel
+     */
+    public Evaluator(boolean parallel)
+    {
+        this.parallel = parallel;
+        variableValues = new HANSymbolTable<>();
+    }
+
+    // An evaluator for one parallel task, it shares the global values of the stylesheet
+    private Evaluator(Evaluator stylesheetEvaluator)
+    {
+        this(false);
+        variableNames = stylesheetEvaluator.variableNames;
+        variableValues = new HANSymbolTable<>(variableNames.size());
+        globalValues = stylesheetEvaluator.globalValues;
     }
 
     @Override
     public void apply(AST ast)
     {
-        variableValues = new HANLinkedList<>();
-        evaluateStylesheet(ast.root);
+        // The evaluator changes the tree in place, so a sealed tree can not be evaluated
+        if (ast.isSealed())
+        {
+            throw new IllegalStateException("A sealed AST can not be transformed");
+        }
+
+        variableNames = ast.variableNames;
+        variableValues = new HANSymbolTable<>(variableNames.size());
+        if (parallel)
+        {
+            evaluateStylesheetParallel(ast.root);
+        }
+        else
+        {
+            evaluateStylesheet(ast.root);
+        }
     }
 
-    private void evaluateStylesheet(ASTNode node)
+    private void evaluateStylesheet(Stylesheet stylesheet)
     {
         // Add new scope
-        variableValues.addFirst(new HashMap<>());
+        variableValues.openScope();
 
-        ArrayList<ASTNode> nodesToRemove = new ArrayList<>();
-        for (ASTNode child : node.getChildren())
+        // Rebuild the body in one pass, variable assignments are not needed after evaluating
+        ArrayList<ASTNode> body = new ArrayList<>(stylesheet.body.size());
+        for (ASTNode child : stylesheet.body)
         {
-            if (child instanceof Stylerule)
+            if (child instanceof VariableAssignment)
             {
-                evaluateStylerule((Stylerule) child);
+                evaluateVariableAssignment((VariableAssignment) child);
+                continue;
             }
-            else if (child instanceof VariableAssignment)
+            if (child instanceof Stylerule)
             {
-                evaluateVariableAssignment((VariableAssignment) child);
-                nodesToRemove.add(child);
+                evaluateStylerule((Stylerule) child);
             }
+            body.add(child);
         }
+        stylesheet.body = body;
+
+        // Remove scope
+        variableValues.closeScope();
+    }
+
+    /*
+     Like Checker.checkStylesheetParallel: the global variables are evaluated in order first, remembering
+     the version of the globals at every rule, then the rules are evaluated in parallel. Meant for checked
+     ASTs, those give the same result as evaluateStylesheet.
+     */
+    private void evaluateStylesheetParallel(Stylesheet stylesheet)
+    {
+        globalValues = new HANVersionedTable<>(variableNames.size());
 
-        // Remove all children from nodesToRemove, they are repl
-        for (ASTNode child : nodesToRemove)
+        ArrayList<ASTNode> body = new ArrayList<>(stylesheet.body.size());
+        ArrayList<Stylerule> rules = new ArrayList<>(stylesheet.body.size());
+        int[] ruleVersions = new int[stylesheet.body.size()];
+        for (ASTNode child : stylesheet.body)
         {
-            node.removeChild(child);
+            if (child instanceof VariableAssignment)
+            {
+                VariableAssignment variableAssignment = (VariableAssignment) child;
+                globalVersion = globalValues.version();
+                globalValues.put(variableNames.getId(variableAssignment.name), evaluateExpression(variableAssignment.expression));
+                continue;
+            }
+            if (child instanceof Stylerule)
+            {
+                ruleVersions[rules.size()] = globalValues.version();
+                rules.add((Stylerule) child);
+            }
+            body.add(child);
         }
+        stylesheet.body = body;
 
-        // Remove scope
-        variableValues.removeFirst();
+        int tasks = (rules.size() + RULES_PER_TASK - 1) / RULES_PER_TASK;
+        IntStream.range(0, tasks).parallel().forEach(task ->
+        {
+            Evaluator evaluator = new Evaluator(this);
+            int end = Math.min(rules.size(), (task + 1) * RULES_PER_TASK);
+            for (int rule = task * RULES_PER_TASK; rule < end; rule++)
+            {
+                evaluator.globalVersion = ruleVersions[rule];
+                evaluator.evaluateStylerule(rules.get(rule));
+            }
+        });
     }
 
     private void evaluateStylerule(Stylerule stylerule)
     {
         // Add new scope
-        variableValues.addFirst(new HashMap<>());
-        evaluateStyleruleBody(stylerule.body);
+        variableValues.openScope();
+        stylerule.body = evaluateStyleruleBody(stylerule.body);
 
         // Remove scope
-        variableValues.removeFirst();
+        variableValues.closeScope();
     }
 
-    private void evaluateStyleruleBody(ArrayList<ASTNode> nodes)
+    /*
+     Returns the evaluated body as a new list, built in one pass. Variable assignments are left out and
+     the evaluated body of an if clause takes the place of the if clause, so the declarations keep the
+     order of the source.
+     */
+    private ArrayList<ASTNode> evaluateStyleruleBody(ArrayList<ASTNode> nodes)
     {
-        ArrayList<ASTNode> nodesToRemove = new ArrayList<>();
-        ArrayList<ASTNode> nodesToAdd = new ArrayList<>();
+        ArrayList<ASTNode> body = new ArrayList<>(nodes.size());
         for (ASTNode child : nodes)
         {
             if (child instanceof Declaration)
             {
                 evaluateDeclaration((Declaration) child);
+                body.add(child);
             }
             else if (child instanceof IfClause)
             {
-                nodesToAdd.addAll(evaluateIfClause((IfClause) child));
-                nodesToRemove.add(child);
+                body.addAll(evaluateIfClause((IfClause) child));
             }
             else if (child instanceof VariableAssignment)
             {
                 evaluateVariableAssignment((VariableAssignment) child);
-                nodesToRemove.add(child);
+            }
+            else
+            {
+                body.add(child);
             }
         }
 
-        // Remove all the nodes that are not needed anymore
-        for (ASTNode node : nodesToRemove)
-        {
-            nodes.remove(node);
-        }
-
-        // Add if-clause bodies to stylerule body
-        nodes.addAll(nodesToAdd);
+        return body;
     }
 
     private void evaluateDeclaration(Declaration declaration)
@@ -118,27 +200,19 @@ public class Evaluator implements Transform
         // Evaluate condition
         boolean ifClauseIsTrue = ((BoolLiteral) evaluateExpression(ifClause.conditionalExpression)).value;
 
-        if (ifClauseIsTrue)
-        {
-            // Evaluate body of if-clause
-            evaluateStyleruleBody(ifClause.body);
-            return ifClause.body;
-        }
-
-        if (ifClause.elseClause == null)
+        if (!ifClauseIsTrue && ifClause.elseClause == null)
         {
             return new ArrayList<>();
         }
 
-        // Evaluate body of else clause
-        evaluateStyleruleBody(ifClause.elseClause.body);
-        return ifClause.elseClause.body;
+        // Evaluate body of if- or else clause, its variables are put in the scope of the rule
+        return evaluateStyleruleBody(ifClauseIsTrue ? ifClause.body : ifClause.elseClause.body);
     }
 
     private void evaluateVariableAssignment(VariableAssignment variableAssignment)
     {
         // Make value of variable available in current scope
-        variableValues.getFirst().put(variableAssignment.name.name, evaluateExpression(variableAssignment.expression));
+        variableValues.put(variableNames.getId(variableAssignment.name), evaluateExpression(variableAssignment.expression));
     }
 
     // TR01: Change expressions to literals
@@ -162,16 +236,14 @@ public class Evaluator implements Transform
 
     private Literal evaluateVariableReference(VariableReference variableReference)
     {
-        // Find variable value
-        for (HashMap<String, Literal> scope : variableValues)
+        // Find variable value, null when it is not defined
+        int id = variableNames.getId(variableReference);
+        Literal value = variableValues.get(id);
+        if (value == null && globalValues != null)
         {
-            if (scope.containsKey(variableReference.name))
-            {
-                return scope.get(variableReference.name);
-            }
+            value = globalValues.get(id, globalVersion);
         }
-
-        return null;
+        return value;
     }
 
     private Literal evaluateOperation(Operation operation)
@@ -199,15 +271,15 @@ public class Evaluator implements Transform
     {
         if (left instanceof PixelLiteral && right instanceof PixelLiteral)
         {
-            return new PixelLiteral(((PixelLiteral) left).value + ((PixelLiteral) right).value);
+            return PixelLiteral.valueOf(((PixelLiteral) left).value + ((PixelLiteral) right).value);
         }
         else if (left instanceof PercentageLiteral && right instanceof PercentageLiteral)
         {
-            return new PercentageLiteral(((PercentageLiteral) left).value + ((PercentageLiteral) right).value);
+            return PercentageLiteral.valueOf(((PercentageLiteral) left).value + ((PercentageLiteral) right).value);
         }
         else if (left instanceof ScalarLiteral && right instanceof ScalarLiteral)
         {
-            return new ScalarLiteral(((ScalarLiteral) left).value + ((ScalarLiteral) right).value);
+            return ScalarLiteral.valueOf(((ScalarLiteral) left).value + ((ScalarLiteral) right).value);
         }
 
         return null;
@@ -217,15 +289,15 @@ public class Evaluator implements Transform
     {
         if (left instanceof PixelLiteral && right instanceof PixelLiteral)
         {
-            return new PixelLiteral(((PixelLiteral) left).value - ((PixelLiteral) right).value);
+            return PixelLiteral.valueOf(((PixelLiteral) left).value - ((PixelLiteral) right).value);
         }
         else if (left instanceof PercentageLiteral && right instanceof PercentageLiteral)
         {
-            return new PercentageLiteral(((PercentageLiteral) left).value - ((PercentageLiteral) right).value);
+            return PercentageLiteral.valueOf(((PercentageLiteral) left).value - ((PercentageLiteral) right).value);
         }
         else if (left instanceof ScalarLiteral && right instanceof ScalarLiteral)
         {
-            return new ScalarLiteral(((ScalarLiteral) left).value - ((ScalarLiteral) right).value);
+            return ScalarLiteral.valueOf(((ScalarLiteral) left).value - ((ScalarLiteral) right).value);
         }
 
         return null;
@@ -235,15 +307,15 @@ public class Evaluator implements Transform
     {
         if (left instanceof PixelLiteral && right instanceof ScalarLiteral)
         {
-            return new PixelLiteral(((PixelLiteral) left).value * ((ScalarLiteral) right).value);
+            return PixelLiteral.valueOf(((PixelLiteral) left).value * ((ScalarLiteral) right).value);
         }
         else if (left instanceof PercentageLiteral && right instanceof ScalarLiteral)
         {
-            return new PercentageLiteral(((PercentageLiteral) left).value * ((ScalarLiteral) right).value);
+            return PercentageLiteral.valueOf(((PercentageLiteral) left).value * ((ScalarLiteral) right).value);
         }
         else if (left instanceof ScalarLiteral && right instanceof ScalarLiteral)
         {
-            return new ScalarLiteral(((ScalarLiteral) left).value * ((ScalarLiteral) right).value);
+            return ScalarLiteral.valueOf(((ScalarLiteral) left).value * ((ScalarLiteral) right).value);
         }
 
         return null;
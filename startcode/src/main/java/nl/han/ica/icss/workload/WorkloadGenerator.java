@@ -0,0 +1,408 @@
+package nl.han.ica.icss.workload;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Generates large, valid ICSS stylesheets to measure how the pipeline scales. The same seed and settings
+ * always give the same stylesheet.
+ *
+ * The generated stylesheets pass the checker: every variable is assigned before it is used, if clauses
+ * only test boolean variables and every expression has the type its property needs. Pixel expressions are
+ * pixel terms joined by + and -, where a term can be multiplied by a scalar. Colors are never calculated with.
+ */
+public class WorkloadGenerator
+{
+    private static final String[] TAGS = {"p", "a", "h1", "h2", "div", "span", "ul", "li", "nav", "section"};
+
+    // Global variables are created in this order of types, see appendVariables
+    private static final int PIXEL = 0;
+    private static final int COLOR = 1;
+    private static final int BOOL = 2;
+    private static final int PERCENTAGE = 3;
+    private static final int TYPES = 4;
+
+    private final long seed;
+    private int rules = 100;
+    private int declarations = 4;
+    private int variables = 8;
+    private int ifDepth = 2;
+    private int expressionDepth = 3;
+    private int selectors = 2;
+
+    private Random random;
+    private long length;
+
+    // The number of global variables that are assigned so far, only those can be used
+    private int assigned;
+
+    public WorkloadGenerator(long seed)
+    {
+        this.seed = seed;
+    }
+
+    /**
+     * Writes a generated stylesheet to a file, to stress test the batch compiler for example
+     * @param args the file, the size in MB and optionally the seed
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 2)
+        {
+            System.err.println("Usage: WorkloadGenerator <file> <size in MB> [seed]");
+            System.exit(2);
+        }
+
+        long size = Long.parseLong(args[1]) * 1024 * 1024;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        try (Writer writer = Files.newBufferedWriter(Paths.get(args[0]), StandardCharsets.UTF_8))
+        {
+            new WorkloadGenerator(seed).generate(writer, size);
+        }
+    }
+
+    /**
+     * @param rules the number of style rules, when no target size is given
+     * @return this generator
+     */
+    public WorkloadGenerator setRules(int rules)
+    {
+        this.rules = rules;
+        return this;
+    }
+
+    /**
+     * @param declarations the number of declarations in every rule and in every if and else body
+     * @return this generator
+     */
+    public WorkloadGenerator setDeclarations(int declarations)
+    {
+        this.declarations = declarations;
+        return this;
+    }
+
+    /**
+     * @param variables the number of global variables, of all types in turn
+     * @return this generator
+     */
+    public WorkloadGenerator setVariables(int variables)
+    {
+        this.variables = variables;
+        return this;
+    }
+
+    /**
+     * @param ifDepth how deep if clauses (with an else clause) are nested in every rule, 0 for none
+     * @return this generator
+     */
+    public WorkloadGenerator setIfDepth(int ifDepth)
+    {
+        this.ifDepth = ifDepth;
+        return this;
+    }
+
+    /**
+     * @param expressionDepth the maximum number of operations in one expression
+     * @return this generator
+     */
+    public WorkloadGenerator setExpressionDepth(int expressionDepth)
+    {
+        this.expressionDepth = expressionDepth;
+        return this;
+    }
+
+    /**
+     * @param selectors the maximum number of selectors of a rule
+     * @return this generator
+     */
+    public WorkloadGenerator setSelectors(int selectors)
+    {
+        this.selectors = selectors;
+        return this;
+    }
+
+    /**
+     * Generates a stylesheet with the configured number of rules
+     * @return the stylesheet
+     */
+    public String generate()
+    {
+        StringBuilder output = new StringBuilder();
+        generate(output, -1);
+        return output.toString();
+    }
+
+    /**
+     * Generates a stylesheet of about the given size, rules are added until it is reached
+     * @param targetSize the size in bytes (the output is ASCII, so also in characters)
+     * @return the stylesheet
+     */
+    public String generate(long targetSize)
+    {
+        StringBuilder output = new StringBuilder((int) Math.min(targetSize + 1024, Integer.MAX_VALUE - 8));
+        generate(output, targetSize);
+        return output.toString();
+    }
+
+    /**
+     * Writes a stylesheet rule by rule, so inputs larger than the heap can be generated to a file
+     * @param output where the stylesheet is written to
+     * @param targetSize the size in bytes to reach, or a negative number to generate the configured number of rules
+     */
+    public void generate(Appendable output, long targetSize) throws IOException
+    {
+        random = new Random(seed);
+        length = 0;
+        assigned = 0;
+
+        StringBuilder buffer = new StringBuilder();
+        appendVariables(buffer);
+        flush(buffer, output);
+
+        for (int rule = 0; targetSize < 0 ? rule < rules : length < targetSize; rule++)
+        {
+            appendStylerule(buffer, rule);
+            flush(buffer, output);
+        }
+    }
+
+    private void generate(StringBuilder output, long targetSize)
+    {
+        try
+        {
+            generate((Appendable) output, targetSize);
+        }
+        catch (IOException e)
+        {
+            // A StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void flush(StringBuilder buffer, Appendable output) throws IOException
+    {
+        length += buffer.length();
+        output.append(buffer);
+        buffer.setLength(0);
+    }
+
+    private void appendVariables(StringBuilder output)
+    {
+        for (int i = 0; i < variables; i++, assigned++)
+        {
+            output.append(variableName(i)).append(" := ");
+            switch (i % TYPES)
+            {
+                case PIXEL:
+                    appendPixelExpression(output, null);
+                    break;
+                case COLOR:
+                    appendColor(output);
+                    break;
+                case BOOL:
+                    output.append(random.nextBoolean() ? "TRUE" : "FALSE");
+                    break;
+                default:
+                    output.append(random.nextInt(100)).append('%');
+            }
+            output.append(";\n");
+        }
+        output.append('\n');
+    }
+
+    private void appendStylerule(StringBuilder output, int rule)
+    {
+        int count = 1 + random.nextInt(Math.max(selectors, 1));
+        for (int i = 0; i < count; i++)
+        {
+            if (i > 0)
+            {
+                output.append(", ");
+            }
+            appendSelector(output, rule * selectors + i);
+        }
+        output.append(" {\n");
+
+        // Every rule has a variable of its own, so the rule scope is used as well
+        String local = "Local" + rule;
+        output.append("  ").append(local).append(" := ");
+        appendPixelExpression(output, null);
+        output.append(";\n");
+
+        appendBody(output, "  ", ifDepth, local);
+        output.append("}\n\n");
+    }
+
+    private void appendSelector(StringBuilder output, int index)
+    {
+        switch (random.nextInt(3))
+        {
+            case 0:
+                output.append(TAGS[random.nextInt(TAGS.length)]);
+                break;
+            case 1:
+                output.append(".class-").append(index);
+                break;
+            default:
+                output.append("#id-").append(index);
+        }
+    }
+
+    private void appendBody(StringBuilder output, String indent, int depth, String local)
+    {
+        for (int i = 0; i < declarations; i++)
+        {
+            output.append(indent);
+            appendDeclaration(output, local);
+        }
+
+        if (depth > 0)
+        {
+            String inner = indent + "  ";
+            output.append(indent).append("if [").append(booleanCondition()).append("] {\n");
+            appendBody(output, inner, depth - 1, local);
+            output.append(indent).append("} else {\n");
+            appendBody(output, inner, depth - 1, local);
+            output.append(indent).append("}\n");
+        }
+    }
+
+    private void appendDeclaration(StringBuilder output, String local)
+    {
+        switch (random.nextInt(4))
+        {
+            case 0:
+                output.append("color: ");
+                appendColorExpression(output);
+                break;
+            case 1:
+                output.append("background-color: ");
+                appendColorExpression(output);
+                break;
+            case 2:
+                output.append("width: ");
+                if (random.nextInt(4) == 0)
+                {
+                    appendPercentageExpression(output);
+                }
+                else
+                {
+                    appendPixelExpression(output, local);
+                }
+                break;
+            default:
+                output.append("height: ");
+                appendPixelExpression(output, local);
+        }
+        output.append(";\n");
+    }
+
+    private void appendPixelExpression(StringBuilder output, String local)
+    {
+        int operations = random.nextInt(expressionDepth + 1);
+        appendPixelTerm(output, local, operations);
+    }
+
+    // A term optionally multiplied by a scalar, followed by more terms joined by + or -
+    private void appendPixelTerm(StringBuilder output, String local, int operations)
+    {
+        int variable = randomVariable(PIXEL);
+        if (local != null && random.nextBoolean())
+        {
+            output.append(local);
+        }
+        else if (variable >= 0 && random.nextBoolean())
+        {
+            output.append(variableName(variable));
+        }
+        else
+        {
+            output.append(random.nextInt(500)).append("px");
+        }
+
+        if (operations > 0 && random.nextInt(3) == 0)
+        {
+            output.append(" * ").append(1 + random.nextInt(4));
+            operations--;
+        }
+        if (operations > 0)
+        {
+            output.append(random.nextBoolean() ? " + " : " - ");
+            appendPixelTerm(output, local, operations - 1);
+        }
+    }
+
+    private void appendPercentageExpression(StringBuilder output)
+    {
+        int variable = randomVariable(PERCENTAGE);
+        if (variable >= 0 && random.nextBoolean())
+        {
+            output.append(variableName(variable));
+        }
+        else
+        {
+            output.append(random.nextInt(100)).append('%');
+        }
+    }
+
+    private void appendColorExpression(StringBuilder output)
+    {
+        int variable = randomVariable(COLOR);
+        if (variable >= 0 && random.nextBoolean())
+        {
+            output.append(variableName(variable));
+        }
+        else
+        {
+            appendColor(output);
+        }
+    }
+
+    private void appendColor(StringBuilder output)
+    {
+        output.append('#');
+        String hex = Integer.toHexString(0x1000000 | random.nextInt(0x1000000));
+        output.append(hex, 1, hex.length());
+    }
+
+    private String booleanCondition()
+    {
+        int variable = randomVariable(BOOL);
+        if (variable >= 0)
+        {
+            return variableName(variable);
+        }
+        return random.nextBoolean() ? "TRUE" : "FALSE";
+    }
+
+    // Returns a random assigned global variable of the type, or -1 when there is none
+    private int randomVariable(int type)
+    {
+        int count = (assigned - type + TYPES - 1) / TYPES;
+        if (count <= 0)
+        {
+            return -1;
+        }
+        return type + TYPES * random.nextInt(count);
+    }
+
+    private static String variableName(int index)
+    {
+        switch (index % TYPES)
+        {
+            case PIXEL:
+                return "Size" + index;
+            case COLOR:
+                return "Color" + index;
+            case BOOL:
+                return "Enabled" + index;
+            default:
+                return "Ratio" + index;
+        }
+    }
+}
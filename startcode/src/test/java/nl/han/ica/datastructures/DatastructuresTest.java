@@ -0,0 +1,175 @@
+package nl.han.ica.datastructures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatastructuresTest
+{
+
+    @Test
+    void ArrayStack_PushBeyondCapacity_ShouldPopInReverseOrder()
+    {
+        IHANStack<Integer> sut = new HANArrayStack<>(2);
+        for (int i = 0; i < 100; i++)
+        {
+            sut.push(i);
+        }
+
+        assertEquals(99, sut.peek());
+        for (int i = 99; i >= 0; i--)
+        {
+            assertEquals(i, sut.pop());
+        }
+        assertThrows(IllegalStateException.class, sut::pop);
+        assertThrows(IllegalStateException.class, sut::peek);
+    }
+
+    @Test
+    void ArrayQueue_WrapAroundAndGrow_ShouldDequeueInOrder()
+    {
+        HANArrayQueue<Integer> sut = new HANArrayQueue<>(4);
+        int next = 0;
+        for (int i = 0; i < 3; i++)
+        {
+            sut.enqueue(i);
+        }
+        // Moves the front to the middle of the array, so the queue wraps around before it grows
+        assertEquals(next++, sut.dequeue());
+        assertEquals(next++, sut.dequeue());
+        for (int i = 3; i < 20; i++)
+        {
+            sut.enqueue(i);
+        }
+
+        int expected = next;
+        for (int value : sut)
+        {
+            assertEquals(expected++, value);
+        }
+        assertEquals(18, sut.getSize());
+        while (!sut.isEmpty())
+        {
+            assertEquals(next, sut.peek());
+            assertEquals(next++, sut.dequeue());
+        }
+        assertEquals(20, next);
+        assertThrows(IllegalStateException.class, sut::dequeue);
+    }
+
+    @Test
+    void ArrayQueue_ModifiedWhileIterating_ShouldFailFast()
+    {
+        HANArrayQueue<String> sut = new HANArrayQueue<>();
+        sut.enqueue("a");
+        sut.enqueue("b");
+
+        Iterator<String> iterator = sut.iterator();
+        iterator.next();
+        sut.enqueue("c");
+        assertThrows(ConcurrentModificationException.class, iterator::next);
+    }
+
+    @Test
+    void LinkedList_BothEnds_ShouldKeepOrderInBothModes()
+    {
+        for (boolean doublyLinked : new boolean[] { false, true })
+        {
+            IHANLinkedList<Integer> sut = new HANLinkedList<>(doublyLinked);
+            sut.addLast(2);
+            sut.addFirst(1);
+            sut.addAll(List.of(3, 4, 5));
+            sut.insert(5, 6);
+            sut.insert(1, 10);
+            sut.delete(1);
+
+            assertEquals(List.of(1, 2, 3, 4, 5, 6), toList(sut.iterator()));
+            assertEquals(List.of(6, 5, 4, 3, 2, 1), toList(sut.descendingIterator()));
+            assertEquals(4, sut.get(3));
+
+            sut.removeLast();
+            sut.delete(sut.getSize() - 1);
+            assertEquals(4, sut.getLast());
+            assertEquals(List.of(4, 3, 2, 1), toList(sut.descendingIterator()));
+
+            while (sut.getSize() > 0)
+            {
+                sut.removeLast();
+            }
+            assertThrows(IllegalStateException.class, sut::getLast);
+            sut.addAll(List.of(7));
+            assertEquals(7, sut.getFirst());
+            assertEquals(7, sut.getLast());
+        }
+    }
+
+    @Test
+    void Queue_EnqueueAndDequeue_ShouldBeFirstInFirstOut()
+    {
+        IHANQueue<Integer> sut = new HANQueue<>();
+        for (int i = 0; i < 10; i++)
+        {
+            sut.enqueue(i);
+        }
+        for (int i = 0; i < 10; i++)
+        {
+            assertEquals(i, sut.peek());
+            assertEquals(i, sut.dequeue());
+        }
+        assertTrue(sut.isEmpty());
+    }
+
+    @Test
+    void SymbolTable_CloseScope_ShouldRestoreHiddenValues()
+    {
+        HANSymbolTable<String> sut = new HANSymbolTable<>(1);
+        sut.openScope();
+        sut.put(0, "global");
+        sut.openScope();
+        sut.put(0, "inner");
+        sut.put(0, "inner again");
+        sut.put(40, "only inner");
+
+        assertEquals("inner again", sut.get(0));
+        assertEquals("only inner", sut.get(40));
+
+        sut.closeScope();
+        assertEquals("global", sut.get(0));
+        assertNull(sut.get(40));
+        assertNull(sut.get(1000));
+
+        sut.closeScope();
+        assertNull(sut.get(0));
+        assertThrows(IllegalStateException.class, sut::closeScope);
+    }
+
+    private static List<Integer> toList(Iterator<Integer> iterator)
+    {
+        List<Integer> values = new ArrayList<>();
+        iterator.forEachRemaining(values::add);
+        return values;
+    }
+
+    @Test
+    void VersionedTable_GetAtVersion_ShouldSeeTableAsItWasThen()
+    {
+        HANVersionedTable<String> sut = new HANVersionedTable<>(1);
+        int empty = sut.version();
+        int first = sut.put(0, "first");
+        sut.put(30, "other");
+        int second = sut.put(0, "second");
+
+        assertNull(sut.get(0, empty));
+        assertEquals("first", sut.get(0, first));
+        assertNull(sut.get(30, first));
+        assertEquals("first", sut.get(0, second - 1));
+        assertEquals("second", sut.get(0, sut.version()));
+        assertEquals("other", sut.get(30, sut.version()));
+        assertNull(sut.get(1000, sut.version()));
+    }
+}
@@ -0,0 +1,155 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.Stylerule;
+import nl.han.ica.icss.ast.VariableNames;
+import nl.han.ica.icss.ast.VariableReference;
+import nl.han.ica.icss.parser.Fixtures;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelineTest
+{
+    @Test
+    void ParseString_ValidInput_ShouldBuildSameAstAsFixture() throws IOException
+    {
+        Pipeline sut = new Pipeline();
+
+        sut.parseString(Sources.read("level0.icss"));
+        assertEquals(Fixtures.uncheckedLevel0(), sut.getAST());
+        sut.parseString(Sources.read("level1.icss"));
+        assertEquals(Fixtures.uncheckedLevel1(), sut.getAST());
+        sut.parseString(Sources.read("level2.icss"));
+        assertEquals(Fixtures.uncheckedLevel2(), sut.getAST());
+        sut.parseString(Sources.read("level3.icss"));
+        assertEquals(Fixtures.uncheckedLevel3(), sut.getAST());
+        assertTrue(sut.isParsed());
+    }
+
+    @Test
+    void ParseString_InvalidInput_ShouldReportSyntaxErrorOnce() throws IOException
+    {
+        Pipeline sut = new Pipeline();
+        sut.parseString(Sources.read("level8_ifstatement_boolean_literal.icss"));
+
+        assertFalse(sut.isParsed());
+        assertEquals(1, sut.getErrors().size());
+        assertEquals("Syntax error: mismatched input '#f34343' expecting {'TRUE', 'FALSE', CAPITAL_IDENT}", sut.getErrors().get(0));
+    }
+
+    @Test
+    void ParseString_AfterSyntaxError_ShouldParseNextInputFromScratch() throws IOException
+    {
+        Pipeline.warmUp();
+        Pipeline sut = new Pipeline();
+        sut.parseString(Sources.read("level8_ifstatement_boolean_literal.icss"));
+        sut.parseString(Sources.read("level0.icss"));
+
+        assertTrue(sut.isParsed());
+        assertTrue(sut.getErrors().isEmpty());
+        assertEquals(Fixtures.uncheckedLevel0(), sut.getAST());
+    }
+
+    @Test
+    void ParseString_SyntaxErrorAfterVariables_ShouldGiveIdsInDocumentOrder()
+    {
+        Pipeline sut = new Pipeline();
+        sut.parseString("First := 1px;\nSecond := First;\np { width: Second; }\nq { width 1px; }\n");
+
+        assertFalse(sut.isParsed());
+        VariableNames names = sut.getAST().variableNames;
+        assertEquals(2, names.size());
+        assertEquals("First", names.getName(0));
+        assertEquals("Second", names.getName(1));
+        List<VariableReference> references = Sources.findReferences(sut.getAST().root);
+        for (VariableReference reference : references)
+        {
+            assertEquals(names.intern(reference.name), reference.getId(), reference.name);
+        }
+    }
+
+    @Test
+    void ParseChannel_ShouldBuildSameAstAsParseString() throws IOException
+    {
+        String source = Sources.read("level3.icss");
+        Pipeline expected = new Pipeline();
+        expected.parseString(source);
+
+        Pipeline sut = new Pipeline();
+        sut.parseChannel(Channels.newChannel(new ByteArrayInputStream(source.getBytes(StandardCharsets.UTF_8))));
+
+        assertTrue(sut.isParsed());
+        assertEquals(expected.getAST(), sut.getAST());
+    }
+
+    @Test
+    void Check_MaxErrors_ShouldStopAfterLimit()
+    {
+        String source = "a { width: A; height: B; color: C; background-color: D; }";
+
+        Pipeline all = new Pipeline();
+        all.parseString(source);
+        assertFalse(all.check());
+        assertEquals(4, all.getErrors().size());
+
+        for (boolean fused : new boolean[] { false, true })
+        {
+            Pipeline sut = new Pipeline();
+            sut.setMaxErrors(2);
+            sut.parseString(source);
+            if (fused)
+            {
+                assertNull(sut.compile(false));
+            }
+            else
+            {
+                assertFalse(sut.check());
+            }
+            assertEquals(all.getErrors().subList(0, 2), sut.getErrors());
+        }
+    }
+
+    @Test
+    void Transform_Twice_ShouldGiveSameAst() throws IOException
+    {
+        String source = Sources.read("level3.icss");
+        Pipeline once = new Pipeline();
+        once.parseString(source);
+        once.transform();
+        Pipeline twice = new Pipeline();
+        twice.parseString(source);
+        twice.transform();
+        twice.transform();
+
+        assertFalse(twice.getAST().isSealed());
+        assertEquals(once.getAST(), twice.getAST());
+        assertEquals(once.generate(), twice.generate());
+    }
+
+    @Test
+    void GetSealedAST_ShouldKeepEqualsAndHashCode() throws IOException
+    {
+        String source = Sources.read("level3.icss");
+        Pipeline sealed = new Pipeline();
+        sealed.parseString(source);
+        sealed.transform();
+        Pipeline unsealed = new Pipeline();
+        unsealed.parseString(source);
+        unsealed.transform();
+
+        AST ast = sealed.getSealedAST();
+        assertTrue(ast.isSealed());
+        assertFalse(unsealed.getAST().isSealed());
+        assertEquals(unsealed.getAST(), ast);
+        assertEquals(unsealed.getAST().hashCode(), ast.hashCode());
+        assertThrows(IllegalStateException.class, () -> ast.root.addChild(new Stylerule()));
+        assertThrows(IllegalStateException.class, sealed::transform);
+    }
+}
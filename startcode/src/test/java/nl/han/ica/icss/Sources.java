@@ -0,0 +1,78 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.VariableReference;
+import nl.han.ica.icss.workload.WorkloadGenerator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ICSS sources the tests of several components share, see Fixtures for the trees of the examples.
+ */
+public class Sources
+{
+    // The scopes of the Checker and the Evaluator differ, see CheckerTest and EvaluatorTest
+    public static final String[] SCOPE_SOURCES = {
+            "a { Size := 1px; }\nb { width: Size; }",
+            "p { Size := 1px; if [TRUE] { Size := 2px; } width: Size; }",
+            "p { Size := 1px; if [FALSE] { } else { Size := 3px; } width: Size; }",
+            "p { if [TRUE] { width: 10px; } else { color: 10px; } }",
+            "p { if [TRUE] { Inner := 1px; } width: Inner; }"
+    };
+
+    public static String read(String resource) throws IOException
+    {
+        try (InputStream inputStream = Sources.class.getClassLoader().getResourceAsStream(resource))
+        {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // Sources for comparing compilers: the examples, with and without errors, and some edge cases
+    public static List<String> compileSources() throws IOException
+    {
+        String[] resources = {
+                "level0.icss", "level1.icss", "level2.icss", "level3.icss",
+                "level4_unknown_variable.icss", "level5_CH02_calculate_with_pixels.icss",
+                "level6_CH03_add_color.icss", "level6_CH03_multiply_color.icss", "level6_CH03_subtract_color.icss",
+                "level7_CH04_color_with_percentage_value.icss", "level7_CH04_color_with_pixel_value.icss",
+                "level7_CH04_width_with_color_value.icss", "level8_ifstatement_boolean_variable.icss",
+                "level9_variable_outside_scope.icss"
+        };
+        List<String> sources = new ArrayList<>();
+        for (String resource : resources)
+        {
+            sources.add(read(resource));
+        }
+        sources.add("Wide := TRUE;\np { Size := 10px; if [Wide] { Size := Size * 2; width: Size + 5px; } else { width: Size; } "
+                + "height: Size; if [FALSE] { color: #000000; } else { Inner := 3px; if [Wide] { height: Inner; } } }\n"
+                + "a { width: 50%; if [TRUE] { } }");
+        sources.add("a { width: Size; if [Missing] { color: #ff0000 + 2px; } height: 2 * 3; }");
+        sources.add(new WorkloadGenerator(1).setRules(50).generate());
+        sources.addAll(List.of(SCOPE_SOURCES));
+        return sources;
+    }
+
+    public static List<VariableReference> findReferences(ASTNode node)
+    {
+        List<VariableReference> references = new ArrayList<>();
+        findReferences(node, references);
+        return references;
+    }
+
+    private static void findReferences(ASTNode node, List<VariableReference> references)
+    {
+        if (node instanceof VariableReference)
+        {
+            references.add((VariableReference) node);
+        }
+        for (int i = 0; i < node.getChildCount(); i++)
+        {
+            findReferences(node.getChild(i), references);
+        }
+    }
+}
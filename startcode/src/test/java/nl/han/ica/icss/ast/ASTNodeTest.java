@@ -0,0 +1,81 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.Sources;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ASTNodeTest
+{
+    @Test
+    void GetChild_ShouldMatchGetChildren() throws IOException
+    {
+        Pipeline sut = new Pipeline();
+        for (String resource : new String[] { "level0.icss", "level1.icss", "level2.icss", "level3.icss" })
+        {
+            sut.parseString(Sources.read(resource));
+            assertSameChildren(sut.getAST().root);
+            sut.check();
+            sut.transform();
+            assertSameChildren(sut.getAST().root);
+        }
+    }
+
+    @Test
+    void Equals_ShouldCompareKindAndPropertyName()
+    {
+        AddOperation add = new AddOperation();
+        add.addChild(PixelLiteral.valueOf(1)).addChild(PixelLiteral.valueOf(2));
+        SubtractOperation subtract = new SubtractOperation();
+        subtract.addChild(PixelLiteral.valueOf(1)).addChild(PixelLiteral.valueOf(2));
+        assertNotEquals(add, subtract);
+
+        Declaration width = new Declaration("width");
+        width.addChild(PixelLiteral.valueOf(1));
+        Declaration height = new Declaration("height");
+        height.addChild(PixelLiteral.valueOf(1));
+        assertNotEquals(width, height);
+        width.seal();
+        height.seal();
+        assertNotEquals(width, height);
+    }
+
+    @Test
+    void Seal_FieldAssignedAfterwards_ShouldChangeEqualsAndHashCode()
+    {
+        Declaration sealed = new Declaration("width");
+        sealed.addChild(PixelLiteral.valueOf(1));
+        sealed.seal();
+        Declaration other = new Declaration("width");
+        other.addChild(PixelLiteral.valueOf(2));
+
+        assertNotEquals(other, sealed);
+        sealed.expression = PixelLiteral.valueOf(2);
+        assertEquals(other, sealed);
+        assertEquals(other.hashCode(), sealed.hashCode());
+    }
+
+    private static void assertSameChildren(ASTNode node)
+    {
+        List<ASTNode> children = new ArrayList<>();
+        for (int i = 0; i < node.getChildCount(); i++)
+        {
+            children.add(node.getChild(i));
+        }
+        assertEquals(node.getChildren(), children);
+        assertThrows(IndexOutOfBoundsException.class, () -> node.getChild(node.getChildCount()));
+
+        for (ASTNode child : children)
+        {
+            assertSameChildren(child);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.Sources;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlatASTTest
+{
+    @Test
+    void FlatAST_ShouldConvertBackToSameAst() throws IOException
+    {
+        for (String source : Sources.compileSources())
+        {
+            Pipeline pipeline = new Pipeline();
+            pipeline.parseString(source);
+
+            FlatAST flat = FlatAST.fromAST(pipeline.getAST());
+
+            assertEquals(pipeline.getAST(), flat.toAST(), source);
+            assertEquals(FlatAST.STYLESHEET, flat.getKind(0));
+            assertEquals(FlatAST.NONE, flat.getParent(0));
+
+            // The texts can still be looked up after trim dropped their map
+            if (flat.getStringCount() > 0)
+            {
+                assertEquals(0, flat.intern(flat.getStringAt(0)));
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.literals.BoolLiteral;
+import nl.han.ica.icss.ast.literals.ColorLiteral;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LiteralTest
+{
+    @Test
+    void ParseString_SameLiteralTwice_ShouldShareInstance()
+    {
+        Pipeline sut = new Pipeline();
+        sut.parseString("p { width: 2000px; height: 2000px; color: #123456; background-color: #123456; }");
+
+        List<ASTNode> body = ((Stylerule) sut.getAST().root.body.get(0)).body;
+        assertSame(((Declaration) body.get(0)).expression, ((Declaration) body.get(1)).expression);
+        assertSame(((Declaration) body.get(2)).expression, ((Declaration) body.get(3)).expression);
+        assertSame(PixelLiteral.valueOf(10), PixelLiteral.valueOf("10px"));
+        assertSame(BoolLiteral.TRUE, BoolLiteral.valueOf("TRUE"));
+    }
+
+    @Test
+    void SetPositionOrError_SharedLiteral_ShouldThrow()
+    {
+        ColorLiteral shared = ColorLiteral.valueOf("#ffffff");
+
+        assertThrows(IllegalStateException.class, () -> shared.setPosition(1, 1));
+        assertThrows(IllegalStateException.class, () -> shared.setError("Not allowed"));
+        ColorLiteral copy = shared.copy();
+        copy.setError("Allowed");
+        assertTrue(copy.hasError());
+        assertFalse(shared.hasError());
+    }
+
+    @Test
+    void Seal_SharedLiteral_ShouldNotChangeIt()
+    {
+        Pipeline sut = new Pipeline();
+        sut.parseString("p { width: 2000px; }");
+        sut.transform();
+
+        assertTrue(sut.getSealedAST().isSealed());
+        assertFalse(PixelLiteral.valueOf(2000).isSealed());
+        assertEquals(new PixelLiteral(2000).hashCode(), PixelLiteral.valueOf(2000).hashCode());
+    }
+}
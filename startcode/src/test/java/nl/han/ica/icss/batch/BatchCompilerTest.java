@@ -0,0 +1,122 @@
+package nl.han.ica.icss.batch;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.cache.CompileCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchCompilerTest
+{
+    private static final String GOOD = "Width := 10px;\np {\n\twidth: Width + 5px;\n}\n";
+    private static final String OTHER = "a {\n\tcolor: #ff0000;\n}\n";
+    private static final String SEMANTIC_ERROR = "p {\n\twidth: Missing;\n}\n";
+    private static final String SYNTAX_ERROR = "p {\n\twidth: 10px\n";
+
+    @TempDir
+    Path directory;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    @BeforeEach
+    void writeSources() throws IOException
+    {
+        Files.createDirectories(directory.resolve("sub"));
+        Files.writeString(directory.resolve("good.icss"), GOOD);
+        Files.writeString(directory.resolve("sub/other.icss"), OTHER);
+        Files.writeString(directory.resolve("semantic.icss"), SEMANTIC_ERROR);
+        Files.writeString(directory.resolve("syntax.icss"), SYNTAX_ERROR);
+
+        // Output of an earlier run, when the file still compiled
+        Files.writeString(directory.resolve("semantic.css"), "p {\n  width: 1px;\n}\n");
+        Files.writeString(directory.resolve("notes.txt"), "not a source");
+    }
+
+    @Test
+    void Compile_GoodAndBadFiles_ShouldWriteGoodAndCountFailed() throws IOException
+    {
+        for (boolean fused : new boolean[] { false, true })
+        {
+            BatchCompiler sut = compiler(false, fused);
+
+            assertEquals(2, sut.compile(sut.findInputs(List.of(directory.toString()))));
+            assertOutputs(false);
+            writeSources();
+        }
+    }
+
+    @Test
+    void Compile_WithCache_ShouldGiveSameFilesTwice(@TempDir Path cacheDirectory) throws IOException
+    {
+        CompileCache cache = new CompileCache(cacheDirectory, 1024 * 1024);
+        for (int run = 0; run < 2; run++)
+        {
+            BatchCompiler sut = compiler(true, false);
+            sut.setCache(cache);
+
+            assertEquals(2, sut.compile(sut.findInputs(List.of(directory.toString()))));
+            assertOutputs(true);
+            writeSources();
+        }
+        assertEquals(4, cache.getHits());
+        assertEquals(4, cache.getMisses());
+    }
+
+    @Test
+    void FindInputs_Glob_ShouldFindMatchingFilesSorted() throws IOException
+    {
+        BatchCompiler sut = compiler(false, false);
+
+        assertEquals(List.of(directory.resolve("good.icss"), directory.resolve("semantic.icss"), directory.resolve("sub/other.icss"),
+                        directory.resolve("syntax.icss")),
+                sut.findInputs(List.of(directory + "/**.icss", directory.resolve("good.icss").toString())));
+    }
+
+    private BatchCompiler compiler(boolean minify, boolean fused)
+    {
+        out.reset();
+        err.reset();
+        return new BatchCompiler(2, minify, fused, new PrintStream(out, true, StandardCharsets.UTF_8),
+                new PrintStream(err, true, StandardCharsets.UTF_8));
+    }
+
+    private void assertOutputs(boolean minify) throws IOException
+    {
+        assertEquals(expectedCss(GOOD, minify), Files.readString(directory.resolve("good.css")));
+        assertEquals(expectedCss(OTHER, minify), Files.readString(directory.resolve("sub/other.css")));
+        assertFalse(Files.exists(directory.resolve("semantic.css")));
+        assertFalse(Files.exists(directory.resolve("syntax.css")));
+        assertFalse(Files.exists(directory.resolve("notes.css")));
+        try (Stream<Path> files = Files.walk(directory))
+        {
+            assertTrue(files.noneMatch(file -> file.toString().endsWith(".tmp")), "temporary output left behind");
+        }
+
+        String errors = err.toString(StandardCharsets.UTF_8);
+        assertTrue(errors.contains(directory.resolve("semantic.icss") + ": ERROR: Variable 'Missing' is not defined"), errors);
+        assertTrue(errors.contains(directory.resolve("syntax.icss") + ": Syntax error"), errors);
+        assertFalse(errors.contains("good.icss"), errors);
+        assertTrue(out.toString(StandardCharsets.UTF_8).startsWith("Compiled 4 files (2 failed)"));
+    }
+
+    private static String expectedCss(String source, boolean minify)
+    {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(source);
+        assertTrue(pipeline.check());
+        pipeline.transform();
+        return pipeline.generate(minify);
+    }
+}
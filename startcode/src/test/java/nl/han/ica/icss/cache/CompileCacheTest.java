@@ -0,0 +1,125 @@
+package nl.han.ica.icss.cache;
+
+import nl.han.ica.icss.Pipeline;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompileCacheTest
+{
+    private static final String SOURCE = "Width := 10px;\np {\n\twidth: Width + 5px;\n}\n";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void Get_AfterPut_ShouldGiveSameResult() throws IOException
+    {
+        CompileCache cache = new CompileCache(directory, 1024 * 1024);
+        CompileResult css = new CompileResult("p {\n  width: 15px;\n}\n", List.of());
+        CompileResult errors = new CompileResult(null, List.of("Syntax error: missing ';'", "ERROR: CH01"));
+
+        assertNull(cache.get("aa01"));
+        cache.put("aa01", css);
+        cache.put("bb02", errors);
+
+        assertEquals(css, cache.get("aa01"));
+        assertEquals(errors, cache.get("bb02"));
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // A cache opened on the same directory later sees the same entries
+        assertEquals(css, new CompileCache(directory, 1024 * 1024).get("aa01"));
+    }
+
+    @Test
+    void Put_SameKeyTwice_ShouldCountEntryOnce() throws IOException
+    {
+        CompileCache cache = new CompileCache(directory, 1024 * 1024);
+        CompileResult result = new CompileResult("p {\n  width: 15px;\n}\n", List.of());
+
+        cache.put("aa01", result);
+        long entrySize = cache.getSize();
+        cache.put("aa01", result);
+
+        assertEquals(entrySize, cache.getSize());
+        assertEquals(entrySize, new CompileCache(directory, 1024 * 1024).getSize());
+    }
+
+    @Test
+    void Key_ShouldDependOnSourceAndOptions()
+    {
+        byte[] source = SOURCE.getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(CompileCache.key(source, "minify=false"), CompileCache.key(source.clone(), "minify=false"));
+        assertNotEquals(CompileCache.key(source, "minify=false"), CompileCache.key(source, "minify=true"));
+        assertNotEquals(CompileCache.key(source, "minify=false"),
+                CompileCache.key((SOURCE + " ").getBytes(StandardCharsets.UTF_8), "minify=false"));
+    }
+
+    @Test
+    void Put_OverMaximumSize_ShouldEvictLeastRecentlyUsed() throws IOException
+    {
+        String css = "p {\n  width: 15px;\n}\n".repeat(20);
+        CompileCache cache = new CompileCache(directory, 1024 * 1024);
+        cache.put("aa01", new CompileResult(css, List.of()));
+        cache.put("bb02", new CompileResult(css, List.of()));
+        setLastUsed("aa01", 1000);
+        setLastUsed("bb02", 2000);
+        long entrySize = cache.getSize() / 2;
+
+        // Room for two entries, so the third one evicts the one used longest ago
+        cache = new CompileCache(directory, entrySize * 2 + entrySize / 2);
+        cache.put("cc03", new CompileResult(css, List.of()));
+
+        assertNull(cache.get("aa01"));
+        assertNotNull(cache.get("bb02"));
+        assertNotNull(cache.get("cc03"));
+        assertTrue(cache.getEvictions() > 0);
+    }
+
+    @Test
+    void CompileSource_Hit_ShouldNotParse() throws IOException
+    {
+        CompileCache cache = new CompileCache(directory, 1024 * 1024);
+        byte[] source = SOURCE.getBytes(StandardCharsets.UTF_8);
+
+        Pipeline first = new Pipeline();
+        CompileResult compiled = first.compileSource(source, false, true, cache);
+        assertTrue(compiled.isSuccess());
+        assertNotNull(first.getAST());
+
+        Pipeline second = new Pipeline();
+        assertEquals(compiled, second.compileSource(source, false, true, cache));
+        assertNull(second.getAST());
+        assertEquals(1, cache.getHits());
+        assertFalse(second.check());
+        assertThrows(IllegalStateException.class, second::generate);
+
+        // Compiling in stages does not get the result of the fused compile
+        assertEquals(compiled, new Pipeline().compileSource(source, false, false, cache));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+
+        // Errors are cached as well
+        byte[] broken = "p { width: Unknown; }".getBytes(StandardCharsets.UTF_8);
+        CompileResult errors = new Pipeline().compileSource(broken, false, false, cache);
+        assertFalse(errors.isSuccess());
+        assertEquals(errors.getErrors(), new Pipeline().compileSource(broken, false, false, cache).getErrors());
+        assertEquals(2, cache.getHits());
+    }
+
+    private void setLastUsed(String key, long millis) throws IOException
+    {
+        Files.setLastModifiedTime(directory.resolve(key.substring(0, 2)).resolve(key.substring(2)),
+                FileTime.fromMillis(millis));
+    }
+}
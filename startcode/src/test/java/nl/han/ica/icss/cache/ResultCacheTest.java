@@ -0,0 +1,99 @@
+package nl.han.ica.icss.cache;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultCacheTest
+{
+    private static final String SOURCE = "Width := 10px;\np {\n\twidth: Width + 5px;\n}\n";
+
+    @Test
+    void Compile_SameSourceTwice_ShouldHitAndGiveSameResult()
+    {
+        ResultCache cache = new ResultCache(1024 * 1024, false, 0);
+
+        CompileResult first = cache.compile(SOURCE);
+        CompileResult second = cache.compile(new String(SOURCE));
+
+        assertSame(first, second);
+        assertEquals(1, cache.stats().hitCount());
+        assertEquals(1, cache.stats().missCount());
+        assertEquals(0.5, cache.hitRate());
+
+        Pipeline pipeline = new Pipeline();
+        assertEquals(pipeline.compileSource(SOURCE, false, true), first);
+    }
+
+    @Test
+    void Compile_Errors_ShouldBeCached()
+    {
+        ResultCache cache = new ResultCache(1024 * 1024, false, 0);
+
+        CompileResult result = cache.compile("p { width: Unknown; }");
+
+        assertFalse(result.isSuccess());
+        assertFalse(result.getErrors().isEmpty());
+        assertSame(result, cache.compile("p { width: Unknown; }"));
+    }
+
+    @Test
+    void Compile_OverMaximumWeight_ShouldEvict()
+    {
+        ResultCache cache = new ResultCache(4 * 1024, false, 0);
+
+        for (int seed = 0; seed < 20; seed++)
+        {
+            cache.compile(new WorkloadGenerator(seed).setRules(10).generate());
+        }
+
+        assertTrue(cache.size() < 20);
+        assertTrue(cache.stats().evictionCount() > 0);
+    }
+
+    @Test
+    void Compile_Concurrently_ShouldCompileOnce() throws Exception
+    {
+        ResultCache cache = new ResultCache(16 * 1024 * 1024, false, 0);
+        String source = new WorkloadGenerator(3).setRules(500).generate();
+        int threads = 8;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try
+        {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Callable<CompileResult>> compiles = new ArrayList<>();
+            for (int i = 0; i < threads; i++)
+            {
+                compiles.add(() ->
+                {
+                    start.await();
+                    return cache.compile(source);
+                });
+            }
+            List<Future<CompileResult>> results = new ArrayList<>();
+            for (Callable<CompileResult> compile : compiles)
+            {
+                results.add(pool.submit(compile));
+            }
+            start.countDown();
+
+            for (Future<CompileResult> result : results)
+            {
+                assertSame(results.get(0).get(), result.get());
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        assertEquals(1, cache.stats().loadCount());
+    }
+}
@@ -0,0 +1,239 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.Sources;
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.Declaration;
+import nl.han.ica.icss.ast.Expression;
+import nl.han.ica.icss.ast.FlatAST;
+import nl.han.ica.icss.ast.IfClause;
+import nl.han.ica.icss.ast.Operation;
+import nl.han.ica.icss.ast.Stylerule;
+import nl.han.ica.icss.ast.VariableReference;
+import nl.han.ica.icss.ast.literals.ColorLiteral;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+import nl.han.ica.icss.compiler.FlatCompiler;
+import nl.han.ica.icss.compiler.FusedCompiler;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.parser.Fixtures;
+import nl.han.ica.icss.transforms.Evaluator;
+import nl.han.ica.icss.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckerTest
+{
+    @Test
+    void Check_Scopes_ShouldFollowCheckerRules()
+    {
+        // A rule has no scope, so its variables are known in the rules after it
+        Pipeline sut = new Pipeline();
+        sut.parseString(Sources.SCOPE_SOURCES[0]);
+        assertTrue(sut.check(), () -> sut.getErrors().toString());
+
+        // Else clauses are not checked
+        sut.parseString(Sources.SCOPE_SOURCES[3]);
+        assertTrue(sut.check(), () -> sut.getErrors().toString());
+
+        // An if clause has a scope
+        sut.parseString(Sources.SCOPE_SOURCES[4]);
+        assertFalse(sut.check());
+        assertEquals(List.of("ERROR: Variable 'Inner' is not defined in current scope."), sut.getErrors());
+    }
+
+    @Test
+    void Check_ShouldGiveErrorsInDocumentOrderWithPositions()
+    {
+        Pipeline sut = new Pipeline();
+        sut.parseString("p {\n  width: Missing;\n  color: 10px;\n}\n");
+        assertFalse(sut.check());
+
+        List<SemanticError> errors = sut.getAST().getErrors();
+        assertEquals(2, errors.size());
+        assertEquals(2, errors.get(0).line);
+        assertEquals(10, errors.get(0).column);
+        assertSame(errors.get(0), errors.get(0).node.getError());
+        assertEquals(3, errors.get(1).line);
+        assertEquals(3, errors.get(1).column);
+    }
+
+    @Test
+    void Check_MaxErrors_ShouldGiveFirstErrorsOfAllErrors()
+    {
+        // Errors in rules of several parallel tasks, and between them
+        StringBuilder rules = new StringBuilder();
+        for (int i = 0; i < 300; i++)
+        {
+            rules.append(i % 3 == 0 ? "p { width: 1px; }\n" : "p { width: X" + i + " * Y; height: 2px + #ffffff; }\n");
+            if (i % 100 == 50)
+            {
+                rules.append("Bad := 1px + TRUE;\n");
+            }
+        }
+
+        // The operation is only known to be wrong after its operands, but its error comes first
+        for (String source : List.of("a { width: X * Y; }", rules.toString()))
+        {
+            Pipeline all = new Pipeline();
+            all.parseString(source);
+            assertFalse(all.check());
+            List<String> allErrors = all.getErrors();
+
+            for (int maxErrors : new int[] { 1, 2, 5, 100, 300 })
+            {
+                List<String> expected = allErrors.subList(0, Math.min(maxErrors, allErrors.size()));
+                for (boolean parallel : new boolean[] { false, true })
+                {
+                    Pipeline sut = new Pipeline();
+                    sut.setMaxErrors(maxErrors);
+                    sut.setParallel(parallel);
+                    sut.parseString(source);
+                    assertFalse(sut.check());
+                    assertEquals(expected, sut.getErrors(), source);
+                    for (SemanticError error : sut.getAST().getErrors())
+                    {
+                        assertSame(error, error.node.getError());
+                    }
+                }
+
+                Pipeline fused = new Pipeline();
+                fused.setMaxErrors(maxErrors);
+                fused.parseString(source);
+                assertNull(fused.compile(false));
+                assertEquals(expected, fused.getErrors(), source);
+
+                FlatCompiler flat = new FlatCompiler(false, maxErrors);
+                assertNull(flat.compile(FlatAST.fromAST(fused.getAST())));
+                assertEquals(expected.toString(), flat.getErrors().toString(), source);
+            }
+        }
+    }
+
+    @Test
+    void Check_ColorInOperation_ShouldGiveErrorToCopyOfLiteral()
+    {
+        Pipeline sut = new Pipeline();
+        sut.parseString("p {\n  width: 10px + #ffffff;\n  color: #ffffff;\n}\n");
+        assertFalse(sut.check());
+
+        SemanticError error = sut.getAST().getErrors().get(0);
+        assertTrue(error.node instanceof ColorLiteral);
+        assertEquals(2, error.line);
+        assertEquals(17, error.column);
+        assertSame(error, error.node.getError());
+
+        // The copy took the place of the shared literal in the operation only
+        List<ASTNode> body = ((Stylerule) sut.getAST().root.body.get(0)).body;
+        assertSame(error.node, ((Operation) ((Declaration) body.get(0)).expression).rhs);
+        assertSame(ColorLiteral.valueOf("#ffffff"), ((Declaration) body.get(1)).expression);
+        assertFalse(ColorLiteral.valueOf("#ffffff").hasError());
+        assertEquals(0, ColorLiteral.valueOf("#ffffff").getLine());
+
+        Pipeline fused = new Pipeline();
+        fused.parseString("p {\n  width: 10px + #ffffff;\n}\n");
+        assertNull(fused.compile(false));
+        assertEquals(List.of(error.toString()), fused.getErrors());
+    }
+
+    @Test
+    void Check_IfConditionOperationOrMissing_ShouldGiveErrorToConditionOrIfClause()
+    {
+        AddOperation operation = new AddOperation();
+        operation.addChild(PixelLiteral.valueOf(1)).addChild(PixelLiteral.valueOf(2));
+        for (Expression condition : new Expression[] { operation, null })
+        {
+            IfClause ifClause = new IfClause(condition, new ArrayList<>());
+            AST ast = new AST();
+            ast.root.addChild(new Stylerule().addChild(new TagSelector("p")).addChild(ifClause));
+
+            new Checker().check(ast);
+
+            ASTNode expected = condition == null ? ifClause : condition;
+            assertEquals(1, ast.getErrors().size());
+            assertSame(expected, ast.getErrors().get(0).node);
+            assertTrue(expected.hasError());
+            assertSame(condition, ifClause.conditionalExpression);
+
+            FusedCompiler fused = new FusedCompiler();
+            assertNull(fused.compile(ast));
+            assertSame(expected, fused.getErrors().get(0).node);
+        }
+    }
+
+    @Test
+    void CheckAndTransform_ReferencesWithoutId_ShouldLookUpNameAndNotChangeReferences() throws IOException
+    {
+        List<Supplier<AST>> fixtures = List.of(Fixtures::uncheckedLevel1, Fixtures::uncheckedLevel2, Fixtures::uncheckedLevel3);
+        String[] resources = { "level1.icss", "level2.icss", "level3.icss" };
+        for (int i = 0; i < resources.length; i++)
+        {
+            for (boolean parallel : new boolean[] { false, true })
+            {
+                AST sut = fixtures.get(i).get();
+                List<VariableReference> references = Sources.findReferences(sut.root);
+
+                new Checker(0, parallel).check(sut);
+                assertTrue(sut.getErrors().isEmpty(), () -> sut.getErrors().toString());
+                new Evaluator(parallel).apply(sut);
+
+                assertFalse(references.isEmpty());
+                for (VariableReference reference : references)
+                {
+                    assertEquals(-1, reference.getId(), reference.name);
+                }
+
+                Pipeline expected = new Pipeline();
+                expected.parseString(Sources.read(resources[i]));
+                assertTrue(expected.check());
+                expected.transform();
+                assertEquals(expected.generate(), new Generator().generate(sut), resources[i]);
+            }
+        }
+    }
+
+    @Test
+    void Parallel_ShouldGiveSameErrorsAndAstAsSequential() throws IOException
+    {
+        List<String> sources = Sources.compileSources();
+        sources.add(new WorkloadGenerator(2).setRules(1000).generate());
+
+        // Globals that change between rules, so every rule needs its own snapshot
+        StringBuilder changing = new StringBuilder("Size := 1px;\n");
+        for (int i = 0; i < 500; i++)
+        {
+            changing.append("p { width: Size; Size := 2px; height: Size; }\n");
+            changing.append("Size := Size + ").append(i).append("px;\n");
+        }
+        sources.add(changing.toString());
+        sources.add(changing.toString().replace("Size := Size + 250px;", "Size := #ffffff;"));
+
+        for (String source : sources)
+        {
+            Pipeline expected = new Pipeline();
+            expected.parseString(source);
+            boolean expectedChecked = expected.check();
+
+            Pipeline sut = new Pipeline();
+            sut.setParallel(true);
+            sut.parseString(source);
+
+            assertEquals(expectedChecked, sut.check(), source);
+            assertEquals(expected.getErrors(), sut.getErrors(), source);
+            if (expectedChecked)
+            {
+                expected.transform();
+                sut.transform();
+                assertEquals(expected.getAST(), sut.getAST(), source);
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package nl.han.ica.icss.compiler;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.Sources;
+import nl.han.ica.icss.ast.FlatAST;
+import nl.han.ica.icss.checker.SemanticError;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlatCompilerTest
+{
+    @Test
+    void FlatCompiler_ShouldGiveSameErrorsAndCssAsFusedCompiler() throws IOException
+    {
+        for (String source : Sources.compileSources())
+        {
+            for (boolean minify : new boolean[] { false, true })
+            {
+                Pipeline pipeline = new Pipeline();
+                pipeline.parseString(source);
+                FusedCompiler expected = new FusedCompiler(minify);
+                String expectedCss = expected.compile(pipeline.getAST());
+
+                FlatCompiler sut = new FlatCompiler(minify);
+                String css = sut.compile(FlatAST.fromAST(pipeline.getAST()));
+
+                assertEquals(expected.getErrors().toString(), sut.getErrors().toString(), source);
+                assertEquals(positions(expected.getErrors()), positions(sut.getErrors()), source);
+                assertEquals(expectedCss, css, source);
+            }
+        }
+    }
+
+    private static List<String> positions(List<SemanticError> errors)
+    {
+        List<String> positions = new ArrayList<>();
+        for (SemanticError error : errors)
+        {
+            positions.add(error.line + ":" + error.column);
+        }
+        return positions;
+    }
+}
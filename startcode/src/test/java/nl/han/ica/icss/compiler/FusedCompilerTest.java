@@ -0,0 +1,39 @@
+package nl.han.ica.icss.compiler;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.Sources;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FusedCompilerTest
+{
+    @Test
+    void Compile_ShouldGiveSameErrorsAndCssAsSeparateStages() throws IOException
+    {
+        for (String source : Sources.compileSources())
+        {
+            for (boolean minify : new boolean[] { false, true })
+            {
+                Pipeline expected = new Pipeline();
+                expected.parseString(source);
+                String expectedCss = null;
+                if (expected.check())
+                {
+                    expected.transform();
+                    expectedCss = expected.generate(minify);
+                }
+
+                Pipeline sut = new Pipeline();
+                sut.parseString(source);
+                String css = sut.compile(minify);
+
+                assertEquals(expected.getErrors(), sut.getErrors(), source);
+                assertEquals(expectedCss, css, source);
+                assertEquals(expected.isChecked(), sut.isChecked());
+            }
+        }
+    }
+}
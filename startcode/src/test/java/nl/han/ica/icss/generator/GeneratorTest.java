@@ -0,0 +1,184 @@
+package nl.han.ica.icss.generator;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.Declaration;
+import nl.han.ica.icss.ast.Selector;
+import nl.han.ica.icss.ast.Stylerule;
+import nl.han.ica.icss.ast.literals.ColorLiteral;
+import nl.han.ica.icss.ast.literals.PercentageLiteral;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeneratorTest
+{
+    // #aabbcc, which minified becomes #abc
+    private static final Pattern SHORT_COLOR = Pattern.compile("#(.)\\1(.)\\2(.)\\3");
+
+    @Test
+    void Generate_ShouldGiveSameBytesAsFormatGenerator() throws IOException
+    {
+        List<String> sources = new ArrayList<>();
+        for (String resource : new String[] { "level0.icss", "level1.icss", "level2.icss", "level3.icss" })
+        {
+            sources.add(readResource(resource));
+        }
+        sources.add("p { } a, .b, #c { color: #aabbcc; background-color: #aabbcd; width: 50%; height: 0px; }");
+        for (int seed = 0; seed < 10; seed++)
+        {
+            sources.add(new WorkloadGenerator(seed).setRules(50).setSelectors(1 + seed % 3).setIfDepth(seed % 3).generate());
+        }
+
+        for (String source : sources)
+        {
+            Pipeline pipeline = new Pipeline();
+            pipeline.parseString(source);
+            assertTrue(pipeline.check(), () -> pipeline.getErrors().toString());
+            pipeline.transform();
+
+            for (boolean minify : new boolean[] { false, true })
+            {
+                byte[] expected = formatGenerate(pipeline.getAST(), minify).getBytes(StandardCharsets.UTF_8);
+                byte[] actual = new Generator(minify).generate(pipeline.getAST()).getBytes(StandardCharsets.UTF_8);
+                assertArrayEquals(expected, actual, source);
+            }
+        }
+    }
+
+    @Test
+    void Generate_Parallel_ShouldGiveSameBytesAsSequential() throws IOException
+    {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(new WorkloadGenerator(3).setRules(3000).generate());
+        pipeline.check();
+        pipeline.transform();
+
+        for (boolean minify : new boolean[] { false, true })
+        {
+            String expected = new Generator(minify).generate(pipeline.getAST());
+            Generator sut = new Generator(minify, true);
+
+            assertEquals(expected, sut.generate(pipeline.getAST()));
+
+            StringWriter writer = new StringWriter();
+            sut.generate(pipeline.getAST(), writer);
+            assertEquals(expected, writer.toString());
+
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            sut.generate(pipeline.getAST(), Channels.newChannel(stream));
+            assertEquals(expected, stream.toString(StandardCharsets.UTF_8));
+
+            Path file = Files.createTempFile("parallel", ".css");
+            try
+            {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE))
+                {
+                    sut.generate(pipeline.getAST(), channel);
+                }
+                assertEquals(expected, Files.readString(file));
+            }
+            finally
+            {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /*
+     The Generator as it was before it appended the parts of a declaration directly, with String.format for
+     every declaration. Minified it leaves out the whitespace, the last semicolon of a rule and rules without
+     declarations, and shortens #aabbcc to #abc. A value that was not evaluated only gets the property.
+     */
+    private static String formatGenerate(AST ast, boolean minify)
+    {
+        StringBuilder output = new StringBuilder();
+        for (ASTNode child : ast.root.getChildren())
+        {
+            if (!(child instanceof Stylerule))
+            {
+                continue;
+            }
+            Stylerule stylerule = (Stylerule) child;
+
+            List<String> selectors = new ArrayList<>();
+            for (Selector selector : stylerule.selectors)
+            {
+                selectors.add(selector.toString());
+            }
+            StringBuilder declarations = new StringBuilder();
+            boolean empty = true;
+            for (ASTNode node : stylerule.body)
+            {
+                if (node instanceof Declaration)
+                {
+                    formatDeclaration(declarations, (Declaration) node, minify);
+                    empty = false;
+                }
+            }
+
+            if (!minify)
+            {
+                output.append(String.format("%s {\n%s}\n\n", String.join(",\n", selectors), declarations));
+            }
+            else if (!empty)
+            {
+                String body = declarations.toString();
+                output.append(String.format("%s{%s}", String.join(",", selectors),
+                        body.endsWith(";") ? body.substring(0, body.length() - 1) : body));
+            }
+        }
+        return output.toString();
+    }
+
+    private static void formatDeclaration(StringBuilder output, Declaration declaration, boolean minify)
+    {
+        output.append(String.format(minify ? "%s:" : "  %s: ", declaration.property.name));
+
+        String end = minify ? ";" : ";\n";
+        if (declaration.expression instanceof ColorLiteral)
+        {
+            String color = ((ColorLiteral) declaration.expression).value;
+            Matcher shortColor = SHORT_COLOR.matcher(color);
+            if (minify && shortColor.matches())
+            {
+                color = String.format("#%s%s%s", shortColor.group(1), shortColor.group(2), shortColor.group(3));
+            }
+            output.append(String.format("%s%s", color, end));
+        }
+        else if (declaration.expression instanceof PixelLiteral)
+        {
+            output.append(String.format("%spx%s", ((PixelLiteral) declaration.expression).value, end));
+        }
+        else if (declaration.expression instanceof PercentageLiteral)
+        {
+            output.append(String.format("%s%%%s", ((PercentageLiteral) declaration.expression).value, end));
+        }
+    }
+
+    private String readResource(String resource) throws IOException
+    {
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(resource))
+        {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
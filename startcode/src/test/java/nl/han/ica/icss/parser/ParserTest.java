@@ -1,6 +1,8 @@
 package nl.han.ica.icss.parser;
 
+import nl.han.ica.icss.ast.literals.ColorLiteral;
 import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.SemanticError;
 import nl.han.ica.icss.generator.Generator;
 import nl.han.ica.icss.transforms.Evaluator;
 import org.junit.jupiter.api.Test;
@@ -131,6 +133,19 @@ class ParserTest
         assertEquals("ERROR: Color literals are not allowed in operations", sut.getErrors().get(0).toString());
     }
 
+    @Test
+    void Checker_CalculateWithColors_ShouldGiveErrorToLiteralAtItsPosition() throws IOException
+    {
+        AST sut = parseTestFile("level6_CH03_add_color.icss");
+        (new Checker()).check(sut);
+
+        SemanticError error = sut.getErrors().get(0);
+        assertTrue(error.node instanceof ColorLiteral);
+        assertSame(error, error.node.getError());
+        assertEquals(11, error.line);
+        assertEquals(27, error.column);
+    }
+
     @ParameterizedTest
     @ValueSource(strings = {"level7_CH04_color_with_percentage_value.icss", "level7_CH04_color_with_pixel_value.icss"})
     void Checker_ColorPropertyWithIncorrectLiteral_ShouldReturnTwoErrorMessages(String icssFile) throws IOException
@@ -199,6 +214,27 @@ class ParserTest
         assertEquals(cleanString(original), cleanString(css));
     }
 
+    @Test
+    void Generator_GenerateToWriter_ShouldGenerateSameAsString() throws IOException
+    {
+        AST sut = parseTestFile("level3.icss");
+        (new Evaluator()).apply(sut);
+
+        StringWriter writer = new StringWriter();
+        (new Generator()).generate(sut, writer);
+
+        assertEquals((new Generator()).generate(sut), writer.toString());
+    }
+
+    @Test
+    void Generator_GenerateMinified_ShouldLeaveOutWhitespaceAndShortenColors() throws IOException
+    {
+        AST sut = parseTestFile("level0.icss");
+        String css = (new Generator(true)).generate(sut);
+
+        assertEquals("p{background-color:#fff;width:500px}a{color:#f00}#menu{width:520px}.menu{color:#000}", css);
+    }
+
     private void walkthroughAstNode(ASTNode parentNode)
     {
         for (ASTNode node : parentNode.getChildren())
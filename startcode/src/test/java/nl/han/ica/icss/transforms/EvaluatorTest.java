@@ -0,0 +1,36 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.Sources;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvaluatorTest
+{
+    @Test
+    void Transform_IfClause_ShouldKeepDeclarationOrder()
+    {
+        Pipeline sut = new Pipeline();
+        sut.parseString("p { width: 10px; if [TRUE] { color: #000000; } else { color: #ffffff; } height: 20px; Size := 5px; }");
+        assertTrue(sut.check());
+        sut.transform();
+
+        assertEquals("p {\n  width: 10px;\n  color: #000000;\n  height: 20px;\n}\n\n", sut.generate());
+    }
+
+    @Test
+    void Transform_Scopes_ShouldFollowEvaluatorRules()
+    {
+        // The bodies of if and else clauses have no scope, their variables change the variable of the rule
+        String[] expected = { "p {\n  width: 2px;\n}\n\n", "p {\n  width: 3px;\n}\n\n", "p {\n  width: 10px;\n}\n\n" };
+        for (int i = 0; i < expected.length; i++)
+        {
+            Pipeline sut = new Pipeline();
+            sut.parseString(Sources.SCOPE_SOURCES[i + 1]);
+            assertTrue(sut.check(), () -> sut.getErrors().toString());
+            sut.transform();
+            assertEquals(expected[i], sut.generate());
+        }
+    }
+}
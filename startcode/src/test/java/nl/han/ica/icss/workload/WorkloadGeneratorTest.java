@@ -0,0 +1,52 @@
+package nl.han.ica.icss.workload;
+
+import nl.han.ica.icss.Pipeline;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkloadGeneratorTest
+{
+
+    @Test
+    void Generate_SameSeed_ShouldGenerateSameStylesheet()
+    {
+        assertEquals(new WorkloadGenerator(42).generate(), new WorkloadGenerator(42).generate());
+        assertNotEquals(new WorkloadGenerator(42).generate(), new WorkloadGenerator(43).generate());
+    }
+
+    @Test
+    void Generate_AnySettings_ShouldPassChecker()
+    {
+        for (int seed = 0; seed < 20; seed++)
+        {
+            String source = new WorkloadGenerator(seed)
+                    .setRules(20)
+                    .setDeclarations(seed % 4)
+                    .setVariables(seed % 9)
+                    .setIfDepth(seed % 4)
+                    .setExpressionDepth(seed % 5)
+                    .setSelectors(1 + seed % 3)
+                    .generate();
+
+            Pipeline pipeline = new Pipeline();
+            pipeline.parseString(source);
+            assertTrue(pipeline.isParsed(), source);
+            assertTrue(pipeline.check(), () -> pipeline.getErrors() + "\n" + source);
+            pipeline.transform();
+
+            Pipeline fused = new Pipeline();
+            fused.parseString(source);
+            assertEquals(pipeline.generate(), fused.compile(false));
+        }
+    }
+
+    @Test
+    void Generate_TargetSize_ShouldReachSize()
+    {
+        String source = new WorkloadGenerator(7).generate(100 * 1024);
+
+        assertTrue(source.length() >= 100 * 1024);
+        assertTrue(source.length() < 110 * 1024);
+    }
+}